@@ -0,0 +1,95 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.DataLoader;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import ir.ramtung.tinyme.repository.SnapshotStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Cold start of DataLoader on a generated order book file spread over a hundred securities.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataLoaderBenchmark {
+    private static final int SECURITIES = 100;
+    private static final int BROKERS = 100;
+    private static final int SHAREHOLDERS = 1000;
+
+    @Param({"100000", "2000000"})
+    private int orders;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        directory = Files.createTempDirectory("loader-benchmark");
+        try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("broker.csv"))) {
+            out.write("brokerId,name,credit\n");
+            for (int i = 1; i <= BROKERS; i++)
+                out.write(i + ",broker" + i + ",1000000000000\n");
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("shareholder.csv"))) {
+            out.write("shareholderId,name\n");
+            for (int i = 1; i <= SHAREHOLDERS; i++)
+                out.write(i + ",shareholder" + i + "\n");
+        }
+        try (BufferedWriter security = Files.newBufferedWriter(directory.resolve("security.csv"));
+             BufferedWriter position = Files.newBufferedWriter(directory.resolve("position.csv"))) {
+            security.write("isin,tickSize,lotSize\n");
+            position.write("shareholderId,isin,positions\n");
+            for (int i = 0; i < SECURITIES; i++) {
+                security.write("SEC" + i + ",1,1\n");
+                for (int j = 1; j <= SHAREHOLDERS; j++)
+                    position.write(j + ",SEC" + i + ",1000000\n");
+            }
+        }
+        LocalDateTime entryTime = LocalDateTime.of(2024, 2, 23, 10, 0);
+        try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("orderbook.csv"))) {
+            out.write("orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity\n");
+            for (int i = 0; i < orders; i++) {
+                boolean buy = i % 2 == 0;
+                int price = buy ? 10000 - i % 1000 : 11000 + i % 1000;
+                int peakSize = i % 10 == 0 ? 10 : 0;
+                out.write(i + 1 + ",SEC" + i % SECURITIES + "," + (buy ? "BUY" : "SELL") + ",100," + price + ","
+                        + (i % BROKERS + 1) + "," + (i % SHAREHOLDERS + 1) + "," + entryTime.plusNanos(i * 1000L) + ","
+                        + peakSize + "," + (peakSize == 0 ? 0 : 7) + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(path);
+        }
+    }
+
+    @Benchmark
+    public SecurityRepository loadAll() throws Exception {
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        SecurityRepository securityRepository = new SecurityRepository();
+        DataLoader dataLoader = new DataLoader(brokerRepository, shareholderRepository, securityRepository,
+                new RequestJournal("", 1, 1), new SnapshotStore("", brokerRepository, shareholderRepository, securityRepository));
+        for (String name : new String[]{"broker", "shareholder", "security", "position", "orderBook"})
+            ReflectionTestUtils.setField(dataLoader, name + "CsvResource", new FileSystemResource(directory.resolve(name.toLowerCase() + ".csv")));
+        dataLoader.loadAll();
+        return securityRepository;
+    }
+}
@@ -0,0 +1,58 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// In consumePeak every incoming order consumes exactly one displayed peak, so each operation
+// replenishes the iceberg at the head of the level and sends it to the back of the queue. In
+// sweepLevel one order takes a peak from every iceberg of the level, a whole round of replenishing.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IcebergReplenishBenchmark {
+    private static final int PEAK_SIZE = 10;
+
+    @Param({"1", "100", "10000"})
+    private int icebergsAtLevel;
+
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private Matcher matcher;
+    private long nextOrderId;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 2).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        matcher = new Matcher();
+        for (int i = 0; i < icebergsAtLevel; i++)
+            security.getOrderBook().enqueue(new IcebergOrder(i + 1, security, Side.SELL, Integer.MAX_VALUE, 1000, broker, shareholder, LocalDateTime.now(), PEAK_SIZE));
+        nextOrderId = icebergsAtLevel + 1;
+    }
+
+    private Order buyOrder(int quantity) {
+        return security.getOrderPool().acquire(nextOrderId++, security, Side.BUY, quantity, 1000, broker, shareholder,
+                LocalDateTime.now(), OrderStatus.NEW, 0);
+    }
+
+    @Benchmark
+    public MatchResult consumePeak() {
+        return matcher.execute(buyOrder(PEAK_SIZE), MatchingState.CONTINUOUS, 0);
+    }
+
+    @Benchmark
+    public MatchResult sweepLevel() {
+        return matcher.execute(buyOrder(PEAK_SIZE * icebergsAtLevel), MatchingState.CONTINUOUS, 0);
+    }
+}
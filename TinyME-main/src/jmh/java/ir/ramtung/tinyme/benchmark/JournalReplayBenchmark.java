@@ -0,0 +1,51 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Raw replay rate of the journal: reading, checksumming and decoding records, without handling them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalReplayBenchmark {
+    private static final int REQUESTS = 1_000_000;
+
+    private Path directory;
+    private Path journalPath;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journalPath = directory.resolve("requests.journal");
+        RequestJournal journal = new RequestJournal(journalPath.toString(), 64 << 20, 500);
+        journal.start();
+        LocalDateTime entryTime = LocalDateTime.now();
+        for (int i = 0; i < REQUESTS; i++)
+            journal.append(EnterOrderRq.createNewOrderRq(i, "ABC", i, entryTime, Side.BUY, 10, 15000 + i % 100, 1, 1, 0));
+        journal.stop();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public long replay(Blackhole blackhole) throws IOException {
+        return new RequestJournal(journalPath.toString(), 64 << 20, 500).replay(blackhole::consume);
+    }
+}
@@ -0,0 +1,60 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Run with -prof gc: the difference in gc.alloc.rate.norm between sweep and refillOnly is what
+// matching itself allocates per sweep, and it should not grow with the number of fills.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherAllocationBenchmark {
+    @Param({"1", "10", "100"})
+    private int fills;
+
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private Order[] sellOrders;
+    private Matcher matcher;
+    private long nextOrderId;
+
+    @Setup
+    public void setup() {
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 2).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        matcher = new Matcher();
+        sellOrders = new Order[fills];
+        for (int i = 0; i < fills; i++)
+            sellOrders[i] = new Order(i + 1, security, Side.SELL, 10, 1000 + i, broker, shareholder);
+        nextOrderId = fills + 1;
+    }
+
+    private void refill() {
+        OrderBook orderBook = security.getOrderBook();
+        for (Order sellOrder : sellOrders)
+            orderBook.enqueue(sellOrder);
+    }
+
+    @Benchmark
+    public void refillOnly() {
+        refill();
+        for (Order sellOrder : sellOrders)
+            security.getOrderBook().removeByOrderId(Side.SELL, sellOrder.getOrderId());
+    }
+
+    @Benchmark
+    public MatchResult sweep() {
+        refill();
+        Order buyOrder = new Order(nextOrderId++, security, Side.BUY, 10 * fills, 1000 + fills, broker, shareholder);
+        return matcher.match(buyOrder, MatchingState.CONTINUOUS, 0);
+    }
+}
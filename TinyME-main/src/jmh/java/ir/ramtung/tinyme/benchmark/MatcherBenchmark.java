@@ -0,0 +1,52 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+    private static final int ORDERS_PER_LEVEL = 10;
+
+    @Param({"1", "10", "100"})
+    private int levels;
+    @Param({"false", "true"})
+    private boolean offHeap;
+
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private Order[] sellOrders;
+    private Matcher matcher;
+    private long nextOrderId;
+
+    @Setup
+    public void setup() {
+        security = Security.builder().isin("ABC").orderBook(new OrderBook(offHeap)).build();
+        broker = Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 2).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        matcher = new Matcher();
+        sellOrders = new Order[levels * ORDERS_PER_LEVEL];
+        for (int i = 0; i < sellOrders.length; i++)
+            sellOrders[i] = new Order(i + 1, security, Side.SELL, 10, 1000 + i / ORDERS_PER_LEVEL, broker, shareholder);
+        nextOrderId = sellOrders.length + 1;
+    }
+
+    @Benchmark
+    public MatchResult aggressiveSweep() {
+        OrderBook orderBook = security.getOrderBook();
+        for (Order sellOrder : sellOrders)
+            orderBook.enqueue(sellOrder);
+        Order buyOrder = new Order(nextOrderId++, security, Side.BUY, 10 * sellOrders.length, 1000 + levels, broker, shareholder);
+        return matcher.execute(buyOrder, MatchingState.CONTINUOUS, 0);
+    }
+}
@@ -0,0 +1,76 @@
+package ir.ramtung.tinyme.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.event.OrderExecutedEvent;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson is configured the way MappingJackson2MessageConverter configures its own mapper.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+    private ObjectMapper objectMapper;
+    private BinaryCodec binaryCodec;
+    private ByteBuffer buffer;
+    private EnterOrderRq enterOrderRq;
+    private OrderExecutedEvent orderExecutedEvent;
+    private byte[] enterOrderRqJson;
+    private ByteBuffer enterOrderRqBinary;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = new ObjectMapper();
+        objectMapper.configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        binaryCodec = new BinaryCodec();
+        buffer = ByteBuffer.allocate(4096);
+
+        enterOrderRq = EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.BUY, 300, 15450, 1, 1, 0, 0, 0);
+        orderExecutedEvent = new OrderExecutedEvent(1, 200, List.of(
+                new TradeDTO("ABC", 15450, 100, 200, 7),
+                new TradeDTO("ABC", 15500, 100, 200, 8),
+                new TradeDTO("ABC", 15550, 100, 200, 9)));
+
+        enterOrderRqJson = objectMapper.writeValueAsBytes(enterOrderRq);
+        enterOrderRqBinary = ByteBuffer.allocate(4096);
+        binaryCodec.encode(enterOrderRq, enterOrderRqBinary);
+        enterOrderRqBinary.flip();
+    }
+
+    @Benchmark
+    public EnterOrderRq jsonDecodeEnterOrderRq() throws IOException {
+        return objectMapper.readValue(enterOrderRqJson, EnterOrderRq.class);
+    }
+
+    @Benchmark
+    public Object binaryDecodeEnterOrderRq() {
+        return binaryCodec.decode(enterOrderRqBinary.duplicate());
+    }
+
+    @Benchmark
+    public byte[] jsonEncodeOrderExecutedEvent() throws IOException {
+        return objectMapper.writeValueAsBytes(orderExecutedEvent);
+    }
+
+    @Benchmark
+    public int binaryEncodeOrderExecutedEvent() {
+        buffer.clear();
+        binaryCodec.encode(orderExecutedEvent, buffer);
+        return buffer.position();
+    }
+}
@@ -0,0 +1,62 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpeningPriceBenchmark {
+    private static final int TICK_SIZE = 10;
+    private static final int BASE_PRICE = 100_000;
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "1000000"})
+    private int priceRangeInTicks;
+
+    @Param({"1000"})
+    private int ordersPerSide;
+
+    private OrderBook orderBook;
+    private Order[] probes;
+    private int lastTradedPrice;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Security security = Security.builder().isin("ABC").tickSize(TICK_SIZE).matchingState(MatchingState.AUCTION).build();
+        Broker broker = Broker.builder().brokerId(1).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        orderBook = security.getOrderBook();
+        Random random = new Random(42);
+        long orderId = 1;
+        for (int i = 0; i < ordersPerSide; i++) {
+            orderBook.enqueue(new Order(orderId++, security, Side.BUY, 1 + random.nextInt(1000), randomPrice(random), broker, shareholder));
+            orderBook.enqueue(new Order(orderId++, security, Side.SELL, 1 + random.nextInt(1000), randomPrice(random), broker, shareholder));
+        }
+        probes = new Order[PROBES];
+        for (int i = 0; i < PROBES; i++)
+            probes[i] = new Order(orderId++, security, i % 2 == 0 ? Side.BUY : Side.SELL, 1 + random.nextInt(1000), randomPrice(random), broker, shareholder);
+        lastTradedPrice = BASE_PRICE + priceRangeInTicks / 2 * TICK_SIZE;
+    }
+
+    private int randomPrice(Random random) {
+        return BASE_PRICE + random.nextInt(priceRangeInTicks) * TICK_SIZE;
+    }
+
+    @Benchmark
+    public int enqueueAndCalculate() {
+        Order order = probes[next++ & (PROBES - 1)];
+        orderBook.enqueue(order);
+        int openingPrice = orderBook.calculateOpeningPriceAccordingTo(lastTradedPrice, TICK_SIZE);
+        orderBook.removeByOrderId(order.getSide(), order.getOrderId());
+        return openingPrice;
+    }
+}
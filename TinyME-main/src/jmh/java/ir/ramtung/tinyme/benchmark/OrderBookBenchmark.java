@@ -0,0 +1,47 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+    private static final int ORDERS_PER_LEVEL = 10;
+    private static final int PROBES = 1024;
+
+    @Param({"100", "10000", "1000000"})
+    private int depth;
+    @Param({"false", "true"})
+    private boolean offHeap;
+
+    private OrderBook orderBook;
+    private Order[] probes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Security security = Security.builder().isin("ABC").orderBook(new OrderBook(offHeap)).build();
+        Broker broker = Broker.builder().brokerId(1).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        orderBook = security.getOrderBook();
+        int levels = Math.max(1, depth / ORDERS_PER_LEVEL);
+        for (int i = 0; i < depth; i++)
+            orderBook.enqueue(new Order(i + 1, security, Side.BUY, 10, 1000 + i % levels, broker, shareholder));
+        probes = new Order[PROBES];
+        for (int i = 0; i < PROBES; i++)
+            probes[i] = new Order(depth + i + 1, security, Side.BUY, 10, 1000 + (i * 7919) % levels, broker, shareholder);
+    }
+
+    @Benchmark
+    public boolean enqueueAndRemove() {
+        Order order = probes[next++ & (PROBES - 1)];
+        orderBook.enqueue(order);
+        return orderBook.removeByOrderId(Side.BUY, order.getOrderId());
+    }
+}
@@ -0,0 +1,74 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// A single trade at the lowest ask activates the first buy stop order, whose trade activates the
+// next one, and so on until every stop order has been executed.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class StopOrderCascadeBenchmark {
+    private static final int BASE_PRICE = 1000;
+
+    @Param({"10", "100", "1000"})
+    private int stopOrders;
+
+    private OrderHandler orderHandler;
+    private Security security;
+    private EnterOrderRq trigger;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        SecurityRepository securityRepository = new SecurityRepository();
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        EventPublisher eventPublisher = new EventPublisher(null, false, 1, 1, 0) {
+            @Override
+            public void publish(Event event) {
+            }
+        };
+
+        security = Security.builder().isin("ABC").lastTradedPrice(BASE_PRICE - 1).build();
+        Broker broker = Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 2).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        securityRepository.addSecurity(security);
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, eventPublisher, new Matcher());
+
+        for (int i = 0; i <= stopOrders; i++)
+            security.getOrderBook().enqueue(new Order(i + 1, security, Side.SELL, 10, BASE_PRICE + i, broker, shareholder));
+        long orderId = stopOrders + 2;
+        for (int i = 0; i < stopOrders; i++, orderId++)
+            orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(orderId, "ABC", orderId, LocalDateTime.now(), Side.BUY, 10, BASE_PRICE + i + 1, 1, 1, 0, 0, BASE_PRICE + i));
+        trigger = EnterOrderRq.createNewOrderRq(orderId, "ABC", orderId, LocalDateTime.now(), Side.BUY, 10, BASE_PRICE, 1, 1, 0);
+    }
+
+    @Benchmark
+    public int cascade() {
+        orderHandler.handleEnterOrder(trigger);
+        return security.getLastTradedPrice();
+    }
+
+    @TearDown(Level.Invocation)
+    public void checkCascadeCompleted() {
+        if (!security.getStopOrderBook().isEmpty())
+            throw new IllegalStateException("Stop order cascade did not activate every stop order");
+    }
+}
@@ -5,27 +5,57 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Credit is a single lock-free cell. Matching reserves all the credit a buy order may need with a
+// compare-and-set before it makes any trade, and releases what a trade at a better price leaves
+// unused; sellers are only paid once the matching is accepted.
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Builder
 public class Broker {
+    private static final VarHandle CREDIT;
+
+    static {
+        try {
+            CREDIT = MethodHandles.lookup().findVarHandle(Broker.class, "credit", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
     @Getter
     @EqualsAndHashCode.Include
     private long brokerId;
     @Getter
     private String name;
     @Getter
-    private long credit;
+    private volatile long credit;
 
     public void increaseCreditBy(long amount) {
-        credit += amount;
+        CREDIT.getAndAdd(this, amount);
     }
 
     public void decreaseCreditBy(long amount) {
-        credit -= amount;
+        CREDIT.getAndAdd(this, -amount);
     }
 
     public boolean hasEnoughCredit(long amount) {
         return credit >= amount;
     }
+
+    public boolean reserveCredit(long amount) {
+        long current;
+        do {
+            current = credit;
+            if (current < amount)
+                return false;
+        } while (!CREDIT.compareAndSet(this, current, current - amount));
+        return true;
+    }
+
+    public void releaseCredit(long amount) {
+        CREDIT.getAndAdd(this, amount);
+    }
 }
@@ -0,0 +1,6 @@
+package ir.ramtung.tinyme.domain.entity;
+
+// One price level of the book as market data sees it: the quantity on display and how many orders
+// make it up.
+public record DepthLevel(int price, long quantity, int orderCount) {
+}
@@ -41,11 +41,13 @@ public class IcebergOrder extends Order {
 
     @Override
     public Order snapshot() {
+        assert notReleased();
         return new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime, peakSize, OrderStatus.SNAPSHOT);
     }
 
     @Override
     public Order snapshotWithQuantity(int newQuantity) {
+        assert notReleased();
         return new IcebergOrder(orderId, security, side, newQuantity, price, broker, shareholder, entryTime, peakSize, OrderStatus.SNAPSHOT);
     }
 
@@ -58,6 +60,7 @@ public class IcebergOrder extends Order {
 
     @Override
     public void decreaseQuantity(int amount) {
+        assert notReleased();
         if (status == OrderStatus.NEW) {
             super.decreaseQuantity(amount);
             return;
@@ -69,6 +72,7 @@ public class IcebergOrder extends Order {
     }
 
     public void replenish() {
+        assert notReleased();
         displayedQuantity = Math.min(quantity, peakSize);
     }
 
@@ -0,0 +1,82 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import ir.ramtung.tinyme.util.LongHashMap;
+
+// The book side keeps the orders themselves, chained into their levels through their own fields,
+// so an order found in the book is the same object that was queued.
+public class LinkedOrderBookSide extends OrderBookSide<LinkedPriceLevel> {
+    private final LongHashMap<Order> orderById;
+
+    public LinkedOrderBookSide(Side side) {
+        super(side);
+        this.orderById = new LongHashMap<>();
+    }
+
+    @Override
+    public void enqueue(Order order) {
+        levelFor(order.getPrice()).addLast(order);
+        linked(order);
+    }
+
+    @Override
+    public void putBack(Order order) {
+        levelFor(order.getPrice()).addFirst(order);
+        linked(order);
+    }
+
+    private void linked(Order order) {
+        orderById.put(order.getOrderId(), order);
+        linked(order.level, order.bookedQuantity, order.getShareholder(), order.getSecurity(), order.committedQuantity);
+    }
+
+    @Override
+    public void updateQuantity(Order order) {
+        if (order.level == null)
+            return;
+        quantityBooked(order.level, order.rebook());
+        quantityCommitted(order.getShareholder(), order.getSecurity(), order.recommit());
+    }
+
+    @Override
+    public void requeue(Order order) {
+        order.level.moveToBack(order);
+        updateQuantity(order);
+    }
+
+    @Override
+    protected LinkedPriceLevel newLevel(int price) {
+        return new LinkedPriceLevel(price);
+    }
+
+    @Override
+    protected void unlinkFirst(LinkedPriceLevel level) {
+        unlink(level.getFirst());
+    }
+
+    @Override
+    public Order findByOrderId(long orderId) {
+        return orderById.get(orderId);
+    }
+
+    @Override
+    public boolean contains(long orderId) {
+        return orderById.containsKey(orderId);
+    }
+
+    @Override
+    public boolean removeByOrderId(long orderId) {
+        Order order = orderById.get(orderId);
+        if (order == null)
+            return false;
+        unlink(order);
+        return true;
+    }
+
+    private void unlink(Order order) {
+        LinkedPriceLevel level = order.level;
+        level.unlink(order);
+        if (orderById.get(order.getOrderId()) == order)
+            orderById.remove(order.getOrderId());
+        unlinked(level, order.bookedQuantity, order.getShareholder(), order.getSecurity(), order.committedQuantity);
+    }
+}
@@ -0,0 +1,115 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// The orders of a level are chained through their own prev/next fields, so linking and unlinking
+// an order allocates nothing and needs no search. An order is in at most one level at a time.
+public class LinkedPriceLevel extends PriceLevel {
+    private Order head;
+    private Order tail;
+    private int size;
+
+    public LinkedPriceLevel(int price) {
+        super(price);
+    }
+
+    private void link(Order order) {
+        assert order.level == null : "Order " + order.getOrderId() + " is already in a price level";
+        order.level = this;
+        order.bookedQuantity = order.getQuantity();
+        order.committedQuantity = order.getTotalQuantity();
+        size++;
+    }
+
+    void addLast(Order order) {
+        link(order);
+        if (tail == null)
+            head = order;
+        else {
+            tail.next = order;
+            order.prev = tail;
+        }
+        tail = order;
+    }
+
+    void addFirst(Order order) {
+        link(order);
+        if (head == null)
+            tail = order;
+        else {
+            head.prev = order;
+            order.next = head;
+        }
+        head = order;
+    }
+
+    void unlink(Order order) {
+        detach(order);
+        order.level = null;
+        size--;
+    }
+
+    void moveToBack(Order order) {
+        if (order == tail)
+            return;
+        detach(order);
+        tail.next = order;
+        order.prev = tail;
+        tail = order;
+    }
+
+    private void detach(Order order) {
+        if (order.prev == null)
+            head = order.next;
+        else
+            order.prev.next = order.next;
+        if (order.next == null)
+            tail = order.prev;
+        else
+            order.next.prev = order.prev;
+        order.prev = null;
+        order.next = null;
+    }
+
+    @Override
+    public Order getFirst() {
+        if (head == null)
+            throw new NoSuchElementException();
+        return head;
+    }
+
+    @Override
+    public int fillableQuantity(int wanted) {
+        int available = 0;
+        for (Order order = head; order != null && available < wanted; order = order.next)
+            available += order.getTotalQuantity();
+        return Math.min(available, wanted);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private Order current = head;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public Order next() {
+                if (current == null)
+                    throw new NoSuchElementException();
+                Order order = current;
+                current = current.next;
+                return order;
+            }
+        };
+    }
+}
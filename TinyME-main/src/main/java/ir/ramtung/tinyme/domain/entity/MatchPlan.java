@@ -0,0 +1,5 @@
+package ir.ramtung.tinyme.domain.entity;
+
+// What a match would fill if it were applied now, worked out without touching the order book.
+public record MatchPlan(int executedQuantity, long tradedValue, int remainingQuantity) {
+}
@@ -7,16 +7,31 @@ import java.util.Objects;
 public final class MatchResult {
     private final MatchingOutcome outcome;
     private final Order remainder;
-    private final LinkedList<Trade> trades;
+    private final TradeBuffer tradeBuffer;
+    private final int generation;
+    private LinkedList<Trade> trades;
 
     public static MatchResult executed(Order remainder, List<Trade> trades) {
         return new MatchResult(MatchingOutcome.EXECUTED, remainder, new LinkedList<>(trades));
     }
 
+    public static MatchResult executed(Order remainder, TradeBuffer tradeBuffer) {
+        return new MatchResult(MatchingOutcome.EXECUTED, remainder, tradeBuffer);
+    }
+
     public MatchResult(MatchingOutcome outcome, Order remainder, LinkedList<Trade> trades) {
         this.outcome = outcome;
         this.remainder = remainder;
         this.trades = trades;
+        this.tradeBuffer = null;
+        this.generation = 0;
+    }
+
+    private MatchResult(MatchingOutcome outcome, Order remainder, TradeBuffer tradeBuffer) {
+        this.outcome = outcome;
+        this.remainder = remainder;
+        this.tradeBuffer = tradeBuffer;
+        this.generation = tradeBuffer.getGeneration();
     }
 
     public MatchingOutcome outcome() {
@@ -27,27 +42,50 @@ public final class MatchResult {
     }
 
     public LinkedList<Trade> trades() {
+        if (trades == null)
+            trades = tradeBuffer.toTrades(generation);
         return trades;
     }
 
+    public TradeBuffer tradeBuffer() {
+        if (tradeBuffer != null && tradeBuffer.getGeneration() != generation)
+            throw new IllegalStateException("Trade buffer has been reused by a later match");
+        return tradeBuffer;
+    }
+
+    public boolean hasTrades() {
+        return tradeBuffer != null ? !tradeBuffer().isEmpty() : !trades.isEmpty();
+    }
+
+    public int executedQuantity() {
+        return tradeBuffer != null ? tradeBuffer().executedQuantity() : trades.stream().mapToInt(Trade::getQuantity).sum();
+    }
+
+    public int lastTradePrice() {
+        if (tradeBuffer == null)
+            return trades.getLast().getPrice();
+        TradeBuffer buffer = tradeBuffer();
+        return buffer.getPrice(buffer.size() - 1);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         if (obj == null || obj.getClass() != this.getClass()) return false;
         var that = (MatchResult) obj;
         return Objects.equals(this.remainder, that.remainder) &&
-                Objects.equals(this.trades, that.trades);
+                Objects.equals(this.trades(), that.trades());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(remainder, trades);
+        return Objects.hash(remainder, trades());
     }
 
     @Override
     public String toString() {
         return "MatchResult[" +
                 "remainder=" + remainder + ", " +
-                "trades=" + trades + ']';
+                "trades=" + trades() + ']';
     }
-}
\ No newline at end of file
+}
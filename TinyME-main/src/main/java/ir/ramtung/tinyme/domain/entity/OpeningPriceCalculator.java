@@ -0,0 +1,159 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+// Tradable quantity at price p is the buy quantity priced >= p plus the sell quantity priced <= p.
+// It is kept per tick in a sparse segment tree: a buy adds its quantity to every tick up to its price
+// and a sell to every tick from its price on, so each order event is a single O(log n) range update.
+public class OpeningPriceCalculator {
+    private static final int MAX_INDEX = Integer.MAX_VALUE - 1;
+    private static final int NONE = -1;
+
+    @Getter
+    private final int tickSize;
+    private int[] left;
+    private int[] right;
+    private long[] added;
+    private long[] max;
+    private int nodeCount;
+    private final int root;
+
+    public OpeningPriceCalculator(int tickSize) {
+        this.tickSize = tickSize;
+        left = new int[64];
+        right = new int[64];
+        added = new long[64];
+        max = new long[64];
+        nodeCount = 1;
+        root = newNode();
+    }
+
+    public void add(Side side, int price, long quantity) {
+        if (quantity == 0)
+            return;
+        int index = price / tickSize;
+        if (side == Side.BUY)
+            add(root, 0, MAX_INDEX, 0, index, quantity);
+        else
+            add(root, 0, MAX_INDEX, index, MAX_INDEX, quantity);
+    }
+
+    public long tradableQuantityAt(int price) {
+        return pointValue(price / tickSize);
+    }
+
+    public int openingPrice(int lowestPrice, int highestPrice, int lastTradedPrice) {
+        int from = lowestPrice / tickSize;
+        int to = highestPrice / tickSize;
+        long maximumTradableQuantity = max(root, 0, MAX_INDEX, from, to, 0);
+
+        int target = Math.floorDiv(lastTradedPrice, tickSize);
+        int atOrBelow = target < from ? NONE : findLast(root, 0, MAX_INDEX, from, Math.min(target, to), maximumTradableQuantity, 0);
+        int ceilingTarget = Math.floorDiv(lastTradedPrice + tickSize - 1, tickSize);
+        int atOrAbove = ceilingTarget > to ? NONE : findFirst(root, 0, MAX_INDEX, Math.max(ceilingTarget, from), to, maximumTradableQuantity, 0);
+
+        if (atOrBelow == NONE)
+            return atOrAbove * tickSize;
+        if (atOrAbove == NONE)
+            return atOrBelow * tickSize;
+        long belowDistance = (long) lastTradedPrice - (long) atOrBelow * tickSize;
+        long aboveDistance = (long) atOrAbove * tickSize - lastTradedPrice;
+        return (belowDistance <= aboveDistance ? atOrBelow : atOrAbove) * tickSize;
+    }
+
+    private int newNode() {
+        if (nodeCount == max.length) {
+            int capacity = max.length << 1;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            added = Arrays.copyOf(added, capacity);
+            max = Arrays.copyOf(max, capacity);
+        }
+        return nodeCount++;
+    }
+
+    private void add(int node, int nodeFrom, int nodeTo, int from, int to, long quantity) {
+        if (from <= nodeFrom && nodeTo <= to) {
+            added[node] += quantity;
+            max[node] += quantity;
+            return;
+        }
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        if (from <= mid) {
+            if (left[node] == 0) {
+                int child = newNode();
+                left[node] = child;
+            }
+            add(left[node], nodeFrom, mid, from, to, quantity);
+        }
+        if (to > mid) {
+            if (right[node] == 0) {
+                int child = newNode();
+                right[node] = child;
+            }
+            add(right[node], mid + 1, nodeTo, from, to, quantity);
+        }
+        max[node] = added[node] + Math.max(max[left[node]], max[right[node]]);
+    }
+
+    private long pointValue(int index) {
+        long value = 0;
+        int node = root;
+        int nodeFrom = 0;
+        int nodeTo = MAX_INDEX;
+        while (node != 0) {
+            value += added[node];
+            int mid = (nodeFrom + nodeTo) >>> 1;
+            if (index <= mid) {
+                node = left[node];
+                nodeTo = mid;
+            } else {
+                node = right[node];
+                nodeFrom = mid + 1;
+            }
+        }
+        return value;
+    }
+
+    private long max(int node, int nodeFrom, int nodeTo, int from, int to, long inherited) {
+        if (node == 0 || (from <= nodeFrom && nodeTo <= to))
+            return inherited + max[node];
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        long result = Long.MIN_VALUE;
+        if (from <= mid)
+            result = max(left[node], nodeFrom, mid, from, to, inherited + added[node]);
+        if (to > mid)
+            result = Math.max(result, max(right[node], mid + 1, nodeTo, from, to, inherited + added[node]));
+        return result;
+    }
+
+    private int findLast(int node, int nodeFrom, int nodeTo, int from, int to, long target, long inherited) {
+        if (to < nodeFrom || nodeTo < from || inherited + max[node] < target)
+            return NONE;
+        if (node == 0)
+            return Math.min(nodeTo, to);
+        if (nodeFrom == nodeTo)
+            return nodeFrom;
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        int found = findLast(right[node], mid + 1, nodeTo, from, to, target, inherited + added[node]);
+        if (found != NONE)
+            return found;
+        return findLast(left[node], nodeFrom, mid, from, to, target, inherited + added[node]);
+    }
+
+    private int findFirst(int node, int nodeFrom, int nodeTo, int from, int to, long target, long inherited) {
+        if (to < nodeFrom || nodeTo < from || inherited + max[node] < target)
+            return NONE;
+        if (node == 0)
+            return Math.max(nodeFrom, from);
+        if (nodeFrom == nodeTo)
+            return nodeFrom;
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        int found = findFirst(left[node], nodeFrom, mid, from, to, target, inherited + added[node]);
+        if (found != NONE)
+            return found;
+        return findFirst(right[node], mid + 1, nodeTo, from, to, target, inherited + added[node]);
+    }
+}
@@ -1,6 +1,7 @@
 package ir.ramtung.tinyme.domain.entity;
 
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -8,7 +9,6 @@ import lombok.ToString;
 
 import java.time.LocalDateTime;
 
-@Builder
 @EqualsAndHashCode
 @ToString
 @Getter
@@ -20,11 +20,41 @@ public class Order {
     protected int price;
     protected Broker broker;
     protected Shareholder shareholder;
-    @Builder.Default
-    protected LocalDateTime entryTime = LocalDateTime.now();
-    @Builder.Default
-    protected OrderStatus status = OrderStatus.NEW;
+    protected LocalDateTime entryTime;
+    protected OrderStatus status;
     protected int minimumExecutionQuantity;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    boolean retired;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    boolean released;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    boolean view;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    LinkedPriceLevel level;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    Order prev;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    Order next;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    int bookedQuantity;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    int committedQuantity;
 
     public Order(long orderId, Security security, Side side, int quantity, int price, Broker broker, Shareholder shareholder, LocalDateTime entryTime, OrderStatus status) {
         this.orderId = orderId;
@@ -69,28 +99,76 @@ public class Order {
         this(orderId, security, side, quantity, price, broker, shareholder, LocalDateTime.now());
     }
 
+    @Builder
+    private static Order of(long orderId, Security security, Side side, int quantity, int price, Broker broker, Shareholder shareholder,
+                            LocalDateTime entryTime, OrderStatus status, int minimumExecutionQuantity) {
+        return new Order(orderId, security, side, quantity, price, broker, shareholder,
+                entryTime == null ? LocalDateTime.now() : entryTime, status == null ? OrderStatus.NEW : status, minimumExecutionQuantity);
+    }
+
+    void reinitialize(long orderId, Security security, Side side, int quantity, int price, Broker broker, Shareholder shareholder, LocalDateTime entryTime, OrderStatus status, int minimumExecutionQuantity) {
+        this.orderId = orderId;
+        this.security = security;
+        this.side = side;
+        this.quantity = quantity;
+        this.price = price;
+        this.entryTime = entryTime;
+        this.broker = broker;
+        this.shareholder = shareholder;
+        this.status = status;
+        this.minimumExecutionQuantity = minimumExecutionQuantity;
+        this.retired = false;
+        this.released = false;
+    }
+
+    int rebook() {
+        int delta = getQuantity() - bookedQuantity;
+        bookedQuantity = getQuantity();
+        return delta;
+    }
+
+    int recommit() {
+        int delta = getTotalQuantity() - committedQuantity;
+        committedQuantity = getTotalQuantity();
+        return delta;
+    }
+
+    boolean notReleased() {
+        if (released)
+            throw new IllegalStateException("Order " + orderId + " used after it was released to its pool");
+        return true;
+    }
+
     public Order snapshot() {
+        assert notReleased();
         return new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime, OrderStatus.SNAPSHOT, minimumExecutionQuantity);
     }
 
     public Order snapshotWithQuantity(int newQuantity) {
+        assert notReleased();
         return new Order(orderId, security, side, newQuantity, price, broker, shareholder, entryTime, OrderStatus.SNAPSHOT, minimumExecutionQuantity);
     }
 
     public boolean matches(Order other) {
+        return matchesPrice(other.price);
+    }
+
+    public boolean matchesPrice(int otherPrice) {
         if (side == Side.BUY)
-            return price >= other.price;
+            return price >= otherPrice;
         else
-            return price <= other.price;
+            return price <= otherPrice;
     }
 
     public void decreaseQuantity(int amount) {
+        assert notReleased();
         if (amount > quantity)
             throw new IllegalArgumentException();
         quantity -= amount;
     }
 
     public void makeQuantityZero() {
+        assert notReleased();
         quantity = 0;
     }
 
@@ -103,10 +181,12 @@ public class Order {
     }
 
     public void queue() {
+        assert notReleased();
         status = OrderStatus.QUEUED;
     }
 
     public void markAsNew(){
+        assert notReleased();
         status = OrderStatus.NEW;
     }
     public boolean isQuantityIncreased(int newQuantity) {
@@ -114,6 +194,7 @@ public class Order {
     }
 
     public void updateFromRequest(EnterOrderRq updateOrderRq) {
+        assert notReleased();
         quantity = updateOrderRq.getQuantity();
         price = updateOrderRq.getPrice();
     }
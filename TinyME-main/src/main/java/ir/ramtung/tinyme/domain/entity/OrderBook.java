@@ -1,118 +1,152 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Getter;
-
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 
 import static java.lang.Math.*;
 
-@Getter
 public class OrderBook {
-    private final LinkedList<Order> buyQueue;
-    private final LinkedList<Order> sellQueue;
+    private final OrderBookSide<?> buySide;
+    private final OrderBookSide<?> sellSide;
+    private OpeningPriceCalculator openingPriceCalculator;
 
     public OrderBook() {
-        buyQueue = new LinkedList<>();
-        sellQueue = new LinkedList<>();
+        buySide = new LinkedOrderBookSide(Side.BUY);
+        sellSide = new LinkedOrderBookSide(Side.SELL);
     }
 
-    public void enqueue(Order order) {
-        List<Order> queue = getQueue(order.getSide());
-        ListIterator<Order> it = queue.listIterator();
-        while (it.hasNext()) {
-            if (order.queuesBefore(it.next())) {
-                it.previous();
-                break;
-            }
+    public OrderBook(boolean offHeap) {
+        if (offHeap) {
+            buySide = new RecordOrderBookSide(Side.BUY, true);
+            sellSide = new RecordOrderBookSide(Side.SELL, true);
+        }
+        else {
+            buySide = new LinkedOrderBookSide(Side.BUY);
+            sellSide = new LinkedOrderBookSide(Side.SELL);
         }
+    }
+
+    public void enqueue(Order order) {
         order.queue();
-        it.add(order);
+        getSide(order.getSide()).enqueue(order);
+    }
+
+    public void restore(Order order) {
+        getSide(order.getSide()).enqueue(order);
+    }
+
+    private OrderBookSide<?> getSide(Side side) {
+        return side == Side.BUY ? buySide : sellSide;
     }
 
-    private LinkedList<Order> getQueue(Side side) {
-        return side == Side.BUY ? buyQueue : sellQueue;
+    public Collection<? extends PriceLevel> getLevels(Side side) {
+        return getSide(side).getLevels();
+    }
+
+    public List<DepthLevel> getDepth(Side side, int maxLevels) {
+        return getSide(side).getDepth(maxLevels);
+    }
+
+    public LinkedList<Order> getBuyQueue() {
+        return buySide.toList();
+    }
+
+    public LinkedList<Order> getSellQueue() {
+        return sellSide.toList();
     }
 
     public Order findByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        for (Order order : queue) {
-            if (order.getOrderId() == orderId)
-                return order;
-        }
-        return null;
+        return getSide(side).findByOrderId(orderId);
+    }
+
+    public boolean hasOrder(Side side, long orderId) {
+        return getSide(side).contains(orderId);
     }
 
     public boolean removeByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        var it = queue.listIterator();
-        while (it.hasNext()) {
-            if (it.next().getOrderId() == orderId) {
-                it.remove();
-                return true;
-            }
-        }
-        return false;
+        return getSide(side).removeByOrderId(orderId);
+    }
+
+    public void updateQuantity(Order order) {
+        getSide(order.getSide()).updateQuantity(order);
     }
 
     public Order matchWithFirst(Order newOrder) {
-        var queue = getQueue(newOrder.getSide().opposite());
-        if (newOrder.matches(queue.getFirst()))
-            return queue.getFirst();
+        Order first = getSide(newOrder.getSide().opposite()).getFirst();
+        if (newOrder.matches(first))
+            return first;
         else
             return null;
     }
 
-    public void putBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
-        order.queue();
-        queue.addFirst(order);
+    public Order getFirst(Side side) {
+        return getSide(side).getFirst();
     }
 
-    public void restoreSellOrder(Order sellOrder) {
-        removeByOrderId(Side.SELL, sellOrder.getOrderId());
-        putBack(sellOrder);
+    public void decreaseFirst(Side side, int quantity) {
+        Order first = getSide(side).getFirst();
+        first.decreaseQuantity(quantity);
+        if (first.getQuantity() > 0) {
+            updateQuantity(first);
+            return;
+        }
+        if (first instanceof IcebergOrder icebergOrder && icebergOrder.getTotalQuantity() > 0) {
+            replenish(icebergOrder);
+            return;
+        }
+        removeFirst(side);
+        first.getSecurity().getOrderPool().release(first);
     }
 
-    public boolean hasOrderOfType(Side side) {
-        return !getQueue(side).isEmpty();
+    public void replenish(IcebergOrder icebergOrder) {
+        icebergOrder.replenish();
+        getSide(icebergOrder.getSide()).requeue(icebergOrder);
     }
 
-    public void removeFirst(Side side) {
-        getQueue(side).removeFirst();
+    public void putBack(Order order) {
+        order.queue();
+        getSide(order.getSide()).putBack(order);
     }
 
-    public int totalSellQuantityByShareholder(Shareholder shareholder) {
-        return sellQueue.stream()
-                .filter(order -> order.getShareholder().equals(shareholder))
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
+    public boolean hasOrderOfType(Side side) {
+        return !getSide(side).isEmpty();
     }
 
-    public int calculateOpeningPriceAccordingTo(int lastTradedPrice) {
-        if (buyQueue.size() == 0 || sellQueue.size() == 0)
+    public void removeFirst(Side side) {
+        getSide(side).removeFirst();
+    }
+
+    public int calculateOpeningPriceAccordingTo(int lastTradedPrice, int tickSize) {
+        if (buySide.isEmpty() || sellSide.isEmpty())
             return 0;
 
-        int openingPrice = 0;
-        int maximumTradableQuantity = 0;
-
-        for (int currentOpeningPrice = min(buyQueue.getLast().getPrice(), sellQueue.getFirst().getPrice());
-                currentOpeningPrice <= max(buyQueue.getFirst().getPrice(), sellQueue.getLast().getPrice()); currentOpeningPrice++) {
-            int currentTradableQuantity = calculateTradableQuantityAccordingTo(currentOpeningPrice);
-            if (currentTradableQuantity == maximumTradableQuantity)
-                if (abs(currentOpeningPrice - lastTradedPrice) < abs(openingPrice - lastTradedPrice))
-                    openingPrice = currentOpeningPrice;
-            if (currentTradableQuantity > maximumTradableQuantity) {
-                maximumTradableQuantity = currentTradableQuantity;
-                openingPrice = currentOpeningPrice;
-            }
+        return openingPriceCalculator(tickSize).openingPrice(
+                min(buySide.getWorstPrice(), sellSide.getBestPrice()),
+                max(buySide.getBestPrice(), sellSide.getWorstPrice()),
+                lastTradedPrice);
+    }
+
+    private OpeningPriceCalculator openingPriceCalculator(int tickSize) {
+        if (openingPriceCalculator == null || openingPriceCalculator.getTickSize() != tickSize) {
+            openingPriceCalculator = new OpeningPriceCalculator(tickSize);
+            buySide.attach(openingPriceCalculator);
+            sellSide.attach(openingPriceCalculator);
         }
-        return openingPrice;
+        return openingPriceCalculator;
+    }
+
+    void detachOpeningPriceCalculator() {
+        openingPriceCalculator = null;
+        buySide.detach();
+        sellSide.detach();
     }
 
     public int calculateTradableQuantityAccordingTo(int openingPrice) {
+        if (openingPriceCalculator != null && openingPrice % openingPriceCalculator.getTickSize() == 0)
+            return (int) openingPriceCalculator.tradableQuantityAt(openingPrice);
+
         int tradableQuantity = 0;
         for (Order buyOrder : findTradableBuyOrdersAccordingTo(openingPrice))
             tradableQuantity += buyOrder.getQuantity();
@@ -123,16 +157,16 @@ public class OrderBook {
 
     public List<Order> findTradableBuyOrdersAccordingTo(int openingPrice) {
         List<Order> tradableBuyOrders = new ArrayList<>();
-        for (Order buyOrder : buyQueue)
-            if (buyOrder.getPrice() >= openingPrice)
+        for (PriceLevel level : buySide.getLevelsUpTo(openingPrice))
+            for (Order buyOrder : level)
                 tradableBuyOrders.add(buyOrder);
         return tradableBuyOrders;
     }
 
     public List<Order> findTradableSellOrdersAccordingTo(int openingPrice) {
         List<Order> tradableSellOrders = new ArrayList<>();
-        for (Order sellOrder : sellQueue)
-            if (sellOrder.getPrice() <= openingPrice)
+        for (PriceLevel level : sellSide.getLevelsUpTo(openingPrice))
+            for (Order sellOrder : level)
                 tradableSellOrders.add(sellOrder);
         return tradableSellOrders;
     }
@@ -0,0 +1,158 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+// One side of an order book: its price levels from the best price on, and the booked and
+// committed quantities they add up to. Subclasses decide how the orders of a level are stored.
+public abstract class OrderBookSide<L extends PriceLevel> {
+    @Getter
+    private final Side side;
+    private final TreeMap<Integer, L> levels;
+    private L bestLevel;
+    private int size;
+    private OpeningPriceCalculator openingPriceCalculator;
+
+    protected OrderBookSide(Side side) {
+        this.side = side;
+        this.levels = new TreeMap<>(side == Side.BUY ? Comparator.<Integer>reverseOrder() : Comparator.<Integer>naturalOrder());
+    }
+
+    public abstract void enqueue(Order order);
+
+    public abstract void putBack(Order order);
+
+    public abstract void updateQuantity(Order order);
+
+    public abstract void requeue(Order order);
+
+    public abstract Order findByOrderId(long orderId);
+
+    public abstract boolean contains(long orderId);
+
+    public abstract boolean removeByOrderId(long orderId);
+
+    protected abstract L newLevel(int price);
+
+    protected abstract void unlinkFirst(L level);
+
+    protected void linked(L level, int bookedQuantity, Shareholder shareholder, Security security, int committedQuantity) {
+        size++;
+        quantityBooked(level, bookedQuantity);
+        quantityCommitted(shareholder, security, committedQuantity);
+    }
+
+    protected void unlinked(L level, int bookedQuantity, Shareholder shareholder, Security security, int committedQuantity) {
+        size--;
+        quantityBooked(level, -bookedQuantity);
+        quantityCommitted(shareholder, security, -committedQuantity);
+        if (level.isEmpty())
+            dropLevel(level);
+    }
+
+    protected void quantityBooked(L level, long delta) {
+        level.quantityBooked(delta);
+        if (openingPriceCalculator != null)
+            openingPriceCalculator.add(side, level.getPrice(), delta);
+    }
+
+    protected void quantityCommitted(Shareholder shareholder, Security security, int delta) {
+        if (side == Side.SELL && delta != 0)
+            shareholder.commitSellQuantity(security, delta);
+    }
+
+    void attach(OpeningPriceCalculator calculator) {
+        openingPriceCalculator = calculator;
+        for (L level : levels.values())
+            calculator.add(side, level.getPrice(), level.getQuantity());
+    }
+
+    void detach() {
+        openingPriceCalculator = null;
+    }
+
+    protected L levelFor(int price) {
+        L level = levels.get(price);
+        if (level == null) {
+            level = newLevel(price);
+            levels.put(price, level);
+            if (bestLevel == null || levels.comparator().compare(price, bestLevel.getPrice()) < 0)
+                bestLevel = level;
+        }
+        return level;
+    }
+
+    protected L levelAt(int price) {
+        return levels.get(price);
+    }
+
+    private void dropLevel(L level) {
+        levels.remove(level.getPrice());
+        if (level == bestLevel)
+            bestLevel = levels.isEmpty() ? null : levels.firstEntry().getValue();
+    }
+
+    public Order getFirst() {
+        if (bestLevel == null)
+            throw new NoSuchElementException();
+        return bestLevel.getFirst();
+    }
+
+    public void removeFirst() {
+        if (bestLevel == null)
+            throw new NoSuchElementException();
+        unlinkFirst(bestLevel);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getBestPrice() {
+        if (bestLevel == null)
+            throw new NoSuchElementException();
+        return bestLevel.getPrice();
+    }
+
+    public int getWorstPrice() {
+        return levels.lastKey();
+    }
+
+    public Collection<L> getLevels() {
+        return levels.values();
+    }
+
+    public Collection<L> getLevelsUpTo(int price) {
+        return levels.headMap(price, true).values();
+    }
+
+    public List<DepthLevel> getDepth(int maxLevels) {
+        maxLevels = Math.max(maxLevels, 0);
+        List<DepthLevel> depth = new ArrayList<>(Math.min(maxLevels, levels.size()));
+        for (L level : levels.values()) {
+            if (depth.size() == maxLevels)
+                break;
+            depth.add(new DepthLevel(level.getPrice(), level.getQuantity(), level.size()));
+        }
+        return depth;
+    }
+
+    public LinkedList<Order> toList() {
+        LinkedList<Order> orders = new LinkedList<>();
+        for (L level : levels.values())
+            for (Order order : level)
+                orders.add(order);
+        return orders;
+    }
+}
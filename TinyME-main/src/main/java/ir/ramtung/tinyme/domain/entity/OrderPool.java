@@ -0,0 +1,71 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+// Per-security free lists of orders. An order that leaves the book is only retired: the request
+// that retired it may still read it through its MatchResult or TradeBuffer, so retired orders are
+// recycled when the next order is acquired. With assertions enabled, a recycled order refuses to
+// be used again until it is handed out by acquire, and an order cannot be released twice. The
+// views a record book side builds of its orders are left to the garbage collector: a trade or a
+// later lookup may still hold the same view, so it is never handed out as another order.
+public class OrderPool {
+    private final ArrayDeque<Order> freeOrders = new ArrayDeque<>();
+    private final ArrayDeque<IcebergOrder> freeIcebergOrders = new ArrayDeque<>();
+    private final ArrayList<Order> retired = new ArrayList<>();
+
+    public Order acquire(long orderId, Security security, Side side, int quantity, int price, Broker broker,
+                         Shareholder shareholder, LocalDateTime entryTime, OrderStatus status, int minimumExecutionQuantity) {
+        recycle();
+        Order order = freeOrders.pollLast();
+        if (order == null)
+            return new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime, status, minimumExecutionQuantity);
+        order.reinitialize(orderId, security, side, quantity, price, broker, shareholder, entryTime, status, minimumExecutionQuantity);
+        return order;
+    }
+
+    public IcebergOrder acquireIceberg(long orderId, Security security, Side side, int quantity, int price, Broker broker,
+                                       Shareholder shareholder, LocalDateTime entryTime, OrderStatus status, int minimumExecutionQuantity,
+                                       int peakSize, int displayedQuantity) {
+        recycle();
+        IcebergOrder order = freeIcebergOrders.pollLast();
+        if (order == null) {
+            order = new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime, peakSize, displayedQuantity, status);
+            order.minimumExecutionQuantity = minimumExecutionQuantity;
+            return order;
+        }
+        order.reinitialize(orderId, security, side, quantity, price, broker, shareholder, entryTime, status, minimumExecutionQuantity);
+        order.peakSize = peakSize;
+        order.displayedQuantity = displayedQuantity;
+        return order;
+    }
+
+    public Order snapshotOf(Order order) {
+        if (order instanceof IcebergOrder icebergOrder)
+            return acquireIceberg(order.orderId, order.security, order.side, order.quantity, order.price, order.broker,
+                    order.shareholder, order.entryTime, OrderStatus.SNAPSHOT, 0,
+                    icebergOrder.peakSize, Math.min(icebergOrder.peakSize, order.quantity));
+        return acquire(order.orderId, order.security, order.side, order.quantity, order.price, order.broker,
+                order.shareholder, order.entryTime, OrderStatus.SNAPSHOT, order.minimumExecutionQuantity);
+    }
+
+    public void release(Order order) {
+        if (order.view)
+            return;
+        assert !order.retired && !order.released : "Order " + order.orderId + " released twice";
+        order.retired = true;
+        retired.add(order);
+    }
+
+    private void recycle() {
+        for (Order order : retired) {
+            order.released = true;
+            if (order instanceof IcebergOrder icebergOrder)
+                freeIcebergOrders.add(icebergOrder);
+            else
+                freeOrders.add(order);
+        }
+        retired.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+// The orders resting at one price, in time priority, and the total quantity they have booked,
+// which the book side updates whenever an order's booked quantity changes. How the orders of a
+// level are kept is up to the book side that owns it.
+public abstract class PriceLevel implements Iterable<Order> {
+    @Getter
+    private final int price;
+    @Getter
+    private long quantity;
+
+    protected PriceLevel(int price) {
+        this.price = price;
+    }
+
+    void quantityBooked(long delta) {
+        quantity += delta;
+    }
+
+    public abstract Order getFirst();
+
+    public abstract int fillableQuantity(int wanted);
+
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,300 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import ir.ramtung.tinyme.util.LongIntHashMap;
+import ir.ramtung.tinyme.util.RecordSlab;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Resting orders kept as fixed-size records in a RecordSlab (on or off the heap), chained into
+// their levels through prev/next fields, with brokers and shareholders held as indexes into a
+// table of references. Matching mostly reads quantities, which come straight from the records; an
+// Order is only built for a record somebody asks for, and the last one built is handed out again
+// until its record changes. Such an order is a view: changes made to it reach the book through
+// updateQuantity or requeue, as they do for the orders of a linked side. Views are not returned to
+// the order pool when their orders leave the book.
+public class RecordOrderBookSide extends OrderBookSide<RecordOrderBookSide.Level> {
+    private static final int ORDER_ID = 0;
+    private static final int ENTRY_SECOND = 8;
+    private static final int ENTRY_NANO = 16;
+    private static final int BROKER = 20;
+    private static final int SHAREHOLDER = 24;
+    private static final int QUANTITY = 28;
+    private static final int PRICE = 32;
+    private static final int MINIMUM_EXECUTION_QUANTITY = 36;
+    private static final int PEAK_SIZE = 40;
+    private static final int DISPLAYED_QUANTITY = 44;
+    private static final int BOOKED_QUANTITY = 48;
+    private static final int COMMITTED_QUANTITY = 52;
+    private static final int PREV = 56;
+    private static final int NEXT = 60;
+    private static final int STATUS = 64;
+    private static final int ICEBERG = 65;
+    private static final int RECORD_SIZE = 72;
+
+    private static final int NONE = -1;
+    private static final long NO_ENTRY_TIME = Long.MIN_VALUE;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    public final class Level extends PriceLevel {
+        private int head = NONE;
+        private int tail = NONE;
+        private int size;
+
+        private Level(int price) {
+            super(price);
+        }
+
+        @Override
+        public Order getFirst() {
+            if (head == NONE)
+                throw new NoSuchElementException();
+            return view(head);
+        }
+
+        @Override
+        public int fillableQuantity(int wanted) {
+            int available = 0;
+            for (int slot = head; slot != NONE && available < wanted; slot = records.getInt(slot, NEXT))
+                available += records.getInt(slot, QUANTITY);
+            return Math.min(available, wanted);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Order> iterator() {
+            return new Iterator<>() {
+                private int current = head;
+
+                @Override
+                public boolean hasNext() {
+                    return current != NONE;
+                }
+
+                @Override
+                public Order next() {
+                    if (current == NONE)
+                        throw new NoSuchElementException();
+                    int slot = current;
+                    current = records.getInt(slot, NEXT);
+                    return view(slot);
+                }
+            };
+        }
+    }
+
+    private final RecordSlab records;
+    private final LongIntHashMap slotById;
+    private final IdentityHashMap<Object, Integer> referenceIndex;
+    private final ArrayList<Object> references;
+    private Security security;
+    private int viewedSlot = NONE;
+    private Order viewed;
+
+    public RecordOrderBookSide(Side side, boolean offHeap) {
+        super(side);
+        records = new RecordSlab(RECORD_SIZE, offHeap);
+        slotById = new LongIntHashMap();
+        referenceIndex = new IdentityHashMap<>();
+        references = new ArrayList<>();
+    }
+
+    @Override
+    public void enqueue(Order order) {
+        Level level = levelFor(order.getPrice());
+        int slot = store(order);
+        records.putInt(slot, PREV, level.tail);
+        records.putInt(slot, NEXT, NONE);
+        if (level.tail == NONE)
+            level.head = slot;
+        else
+            records.putInt(level.tail, NEXT, slot);
+        level.tail = slot;
+        linked(level, slot);
+    }
+
+    @Override
+    public void putBack(Order order) {
+        Level level = levelFor(order.getPrice());
+        int slot = store(order);
+        records.putInt(slot, PREV, NONE);
+        records.putInt(slot, NEXT, level.head);
+        if (level.head == NONE)
+            level.tail = slot;
+        else
+            records.putInt(level.head, PREV, slot);
+        level.head = slot;
+        linked(level, slot);
+    }
+
+    private void linked(Level level, int slot) {
+        level.size++;
+        slotById.put(records.getLong(slot, ORDER_ID), slot);
+        linked(level, records.getInt(slot, BOOKED_QUANTITY), shareholderOf(slot), security, records.getInt(slot, COMMITTED_QUANTITY));
+    }
+
+    @Override
+    public void updateQuantity(Order order) {
+        int slot = slotById.get(order.getOrderId());
+        if (slot == LongIntHashMap.MISSING)
+            return;
+        if (slot == viewedSlot && order != viewed)
+            forgetView();
+        write(slot, order);
+        quantityBooked(levelAt(records.getInt(slot, PRICE)), order.getQuantity() - records.getInt(slot, BOOKED_QUANTITY));
+        records.putInt(slot, BOOKED_QUANTITY, order.getQuantity());
+        quantityCommitted(shareholderOf(slot), security, order.getTotalQuantity() - records.getInt(slot, COMMITTED_QUANTITY));
+        records.putInt(slot, COMMITTED_QUANTITY, order.getTotalQuantity());
+    }
+
+    @Override
+    public void requeue(Order order) {
+        int slot = slotById.get(order.getOrderId());
+        Level level = levelAt(records.getInt(slot, PRICE));
+        if (slot != level.tail) {
+            detach(level, slot);
+            records.putInt(slot, PREV, level.tail);
+            records.putInt(slot, NEXT, NONE);
+            records.putInt(level.tail, NEXT, slot);
+            level.tail = slot;
+        }
+        updateQuantity(order);
+    }
+
+    @Override
+    protected Level newLevel(int price) {
+        return new Level(price);
+    }
+
+    @Override
+    protected void unlinkFirst(Level level) {
+        unlink(level, level.head);
+    }
+
+    @Override
+    public Order findByOrderId(long orderId) {
+        int slot = slotById.get(orderId);
+        return slot == LongIntHashMap.MISSING ? null : view(slot);
+    }
+
+    @Override
+    public boolean contains(long orderId) {
+        return slotById.containsKey(orderId);
+    }
+
+    @Override
+    public boolean removeByOrderId(long orderId) {
+        int slot = slotById.get(orderId);
+        if (slot == LongIntHashMap.MISSING)
+            return false;
+        unlink(levelAt(records.getInt(slot, PRICE)), slot);
+        return true;
+    }
+
+    private void unlink(Level level, int slot) {
+        detach(level, slot);
+        level.size--;
+        slotById.remove(records.getLong(slot, ORDER_ID));
+        if (slot == viewedSlot)
+            forgetView();
+        unlinked(level, records.getInt(slot, BOOKED_QUANTITY), shareholderOf(slot), security, records.getInt(slot, COMMITTED_QUANTITY));
+        records.free(slot);
+    }
+
+    private void detach(Level level, int slot) {
+        int prev = records.getInt(slot, PREV);
+        int next = records.getInt(slot, NEXT);
+        if (prev == NONE)
+            level.head = next;
+        else
+            records.putInt(prev, NEXT, next);
+        if (next == NONE)
+            level.tail = prev;
+        else
+            records.putInt(next, PREV, prev);
+    }
+
+    private Order view(int slot) {
+        if (slot != viewedSlot) {
+            viewed = load(slot);
+            viewedSlot = slot;
+        }
+        return viewed;
+    }
+
+    private void forgetView() {
+        viewedSlot = NONE;
+        viewed = null;
+    }
+
+    private int store(Order order) {
+        if (security == null)
+            security = order.getSecurity();
+        int slot = records.allocate();
+        records.putLong(slot, ORDER_ID, order.getOrderId());
+        LocalDateTime entryTime = order.getEntryTime();
+        records.putLong(slot, ENTRY_SECOND, entryTime == null ? NO_ENTRY_TIME : entryTime.toEpochSecond(ZoneOffset.UTC));
+        records.putInt(slot, ENTRY_NANO, entryTime == null ? 0 : entryTime.getNano());
+        records.putInt(slot, BROKER, referenceTo(order.getBroker()));
+        records.putInt(slot, SHAREHOLDER, referenceTo(order.getShareholder()));
+        records.putInt(slot, PRICE, order.getPrice());
+        records.putByte(slot, ICEBERG, (byte) (order instanceof IcebergOrder ? 1 : 0));
+        write(slot, order);
+        records.putInt(slot, BOOKED_QUANTITY, order.getQuantity());
+        records.putInt(slot, COMMITTED_QUANTITY, order.getTotalQuantity());
+        return slot;
+    }
+
+    private void write(int slot, Order order) {
+        records.putInt(slot, QUANTITY, order.getTotalQuantity());
+        records.putInt(slot, MINIMUM_EXECUTION_QUANTITY, order.getMinimumExecutionQuantity());
+        if (order instanceof IcebergOrder icebergOrder) {
+            records.putInt(slot, PEAK_SIZE, icebergOrder.getPeakSize());
+            records.putInt(slot, DISPLAYED_QUANTITY, icebergOrder.getDisplayedQuantity());
+        }
+        records.putByte(slot, STATUS, (byte) order.getStatus().ordinal());
+    }
+
+    private Order load(int slot) {
+        long orderId = records.getLong(slot, ORDER_ID);
+        long entrySecond = records.getLong(slot, ENTRY_SECOND);
+        LocalDateTime entryTime = entrySecond == NO_ENTRY_TIME ? null : LocalDateTime.ofEpochSecond(entrySecond, records.getInt(slot, ENTRY_NANO), ZoneOffset.UTC);
+        Broker broker = (Broker) references.get(records.getInt(slot, BROKER));
+        int quantity = records.getInt(slot, QUANTITY);
+        int price = records.getInt(slot, PRICE);
+        OrderStatus status = STATUSES[records.getByte(slot, STATUS)];
+        int minimumExecutionQuantity = records.getInt(slot, MINIMUM_EXECUTION_QUANTITY);
+        if (records.getByte(slot, ICEBERG) == 0) {
+            Order order = new Order(orderId, security, getSide(), quantity, price, broker, shareholderOf(slot), entryTime, status, minimumExecutionQuantity);
+            order.view = true;
+            return order;
+        }
+        IcebergOrder order = new IcebergOrder(orderId, security, getSide(), quantity, price, broker, shareholderOf(slot), entryTime,
+                records.getInt(slot, PEAK_SIZE), records.getInt(slot, DISPLAYED_QUANTITY), status);
+        order.minimumExecutionQuantity = minimumExecutionQuantity;
+        order.view = true;
+        return order;
+    }
+
+    private Shareholder shareholderOf(int slot) {
+        return (Shareholder) references.get(records.getInt(slot, SHAREHOLDER));
+    }
+
+    private int referenceTo(Object reference) {
+        Integer index = referenceIndex.get(reference);
+        if (index == null) {
+            index = references.size();
+            references.add(reference);
+            referenceIndex.put(reference, index);
+        }
+        return index;
+    }
+}
@@ -7,12 +7,12 @@ import ir.ramtung.tinyme.messaging.request.MatchingState;
 import lombok.Builder;
 import lombok.Getter;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Getter
 @Builder
 public class Security {
+    private int id;
     private String isin;
     @Builder.Default
     private MatchingState matchingState = MatchingState.CONTINUOUS;
@@ -29,34 +29,35 @@ public class Security {
 
     @Builder.Default
     private OrderBook orderBook = new OrderBook();
+    @Builder.Default
+    private StopOrderBook stopOrderBook = new StopOrderBook();
+    @Builder.Default
+    private TradeBuffer tradeBuffer = new TradeBuffer();
+    @Builder.Default
+    private OrderPool orderPool = new OrderPool();
+
+    public void setId(int id) {
+        this.id = id;
+    }
 
     public void setMatchingState(MatchingState targetState) {
         matchingState = targetState;
+        if (targetState != MatchingState.AUCTION)
+            orderBook.detachOpeningPriceCalculator();
     }
 
     public MatchResult newOrder(EnterOrderRq enterOrderRq, Broker broker, Shareholder shareholder, Matcher matcher) {
         Order order;
         if (enterOrderRq.getPeakSize() == 0) {
-            if (enterOrderRq.getMinimumExecutionQuantity() == 0) {
-                order = new Order(enterOrderRq.getOrderId(), this, enterOrderRq.getSide(),
-                        enterOrderRq.getQuantity(), enterOrderRq.getPrice(), broker, shareholder, enterOrderRq.getEntryTime(), OrderStatus.NEW);
-                if(matchingState == MatchingState.CONTINUOUS && enterOrderRq.getStopPrice() > 0 && enterOrderRq.getSide() == Side.BUY)
-                    broker.increaseCreditBy(order.getValue());
-            }
-            else
-                order = new Order(enterOrderRq.getOrderId(), this, enterOrderRq.getSide(),
-                        enterOrderRq.getQuantity(), enterOrderRq.getPrice(), broker, shareholder, enterOrderRq.getEntryTime(), OrderStatus.NEW, enterOrderRq.getMinimumExecutionQuantity());
-        }
-        else {
-            if (enterOrderRq.getMinimumExecutionQuantity() == 0)
-                order = new IcebergOrder(enterOrderRq.getOrderId(), this, enterOrderRq.getSide(),
-                        enterOrderRq.getQuantity(), enterOrderRq.getPrice(), broker, shareholder,
-                        enterOrderRq.getEntryTime(), enterOrderRq.getPeakSize());
-            else
-                order = new IcebergOrder(enterOrderRq.getOrderId(), this, enterOrderRq.getSide(),
-                        enterOrderRq.getQuantity(), enterOrderRq.getPrice(), broker, shareholder,
-                        enterOrderRq.getEntryTime(), enterOrderRq.getPeakSize(), enterOrderRq.getMinimumExecutionQuantity());
+            order = orderPool.acquire(enterOrderRq.getOrderId(), this, enterOrderRq.getSide(), enterOrderRq.getQuantity(),
+                    enterOrderRq.getPrice(), broker, shareholder, enterOrderRq.getEntryTime(), OrderStatus.NEW, enterOrderRq.getMinimumExecutionQuantity());
+            if (enterOrderRq.getMinimumExecutionQuantity() == 0 && matchingState == MatchingState.CONTINUOUS && enterOrderRq.getStopPrice() > 0 && enterOrderRq.getSide() == Side.BUY)
+                broker.increaseCreditBy(order.getValue());
         }
+        else
+            order = orderPool.acquireIceberg(enterOrderRq.getOrderId(), this, enterOrderRq.getSide(), enterOrderRq.getQuantity(),
+                    enterOrderRq.getPrice(), broker, shareholder, enterOrderRq.getEntryTime(), OrderStatus.NEW, enterOrderRq.getMinimumExecutionQuantity(),
+                    enterOrderRq.getPeakSize(), Math.min(enterOrderRq.getPeakSize(), enterOrderRq.getQuantity()));
 
         if (matchingState == MatchingState.AUCTION)
             return auctionMatching(order);
@@ -69,23 +70,26 @@ public class Security {
         orderBook.removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
         if (order.getSide() == Side.BUY)
             order.getBroker().increaseCreditBy(order.getValue());
+        orderPool.release(order);
         if(matchingState == MatchingState.AUCTION) {
-            openingPrice = orderBook.calculateOpeningPriceAccordingTo(lastTradedPrice);
+            openingPrice = orderBook.calculateOpeningPriceAccordingTo(lastTradedPrice, tickSize);
             tradableQuantity = orderBook.calculateTradableQuantityAccordingTo(openingPrice);
         }
     }
 
     public MatchResult updateOrder(EnterOrderRq updateOrderRq, Matcher matcher) {
         Order order = orderBook.findByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
-        Order originalOrder = order.snapshot();
+        Order originalOrder = orderPool.snapshotOf(order);
         order.updateFromRequest(updateOrderRq);
 
         boolean losesPriority = originalOrder.isQuantityIncreased(updateOrderRq.getQuantity())
                 || updateOrderRq.getPrice() != originalOrder.getPrice()
                 || ((originalOrder instanceof IcebergOrder icebergOrder) && (icebergOrder.getPeakSize() < updateOrderRq.getPeakSize()));
         if (!losesPriority) {
+            orderBook.updateQuantity(order);
             if (updateOrderRq.getSide() == Side.BUY)
-                originalOrder.getBroker().decreaseCreditBy((updateOrderRq.getQuantity() - originalOrder.getQuantity()) * originalOrder.getPrice());
+                originalOrder.getBroker().decreaseCreditBy((long) (updateOrderRq.getQuantity() - originalOrder.getQuantity()) * originalOrder.getPrice());
+            orderPool.release(originalOrder);
             return MatchResult.executed(null, List.of());
         }
 
@@ -101,38 +105,38 @@ public class Security {
                 if (updateOrderRq.getSide() == Side.BUY)
                     originalOrder.getBroker().decreaseCreditBy(originalOrder.getValue());
             }
+            else
+                orderPool.release(originalOrder);
             return matchResult;
         }
         MatchResult matchResult = auctionMatching(order);
         if (updateOrderRq.getSide() == Side.BUY)
             order.getBroker().decreaseCreditBy(order.getValue());
+        orderPool.release(originalOrder);
         return matchResult;
     }
 
-    public List<Trade> reopening(Matcher matcher) {
-        List<Trade> trades = new ArrayList<>();
-
-        for(Order buyOrder : orderBook.findTradableBuyOrdersAccordingTo(openingPrice)) {
-            if (orderBook.findTradableSellOrdersAccordingTo(openingPrice).size() == 0)
-                break;
-            MatchResult matchResult = continuousMatching(buyOrder, matcher);
-            for (Trade trade : matchResult.trades())
-                trades.add(trade);
-        }
-
+    public TradeBuffer reopening(Matcher matcher) {
+        TradeBuffer trades = matcher.uncross(this, openingPrice);
+        if (!trades.isEmpty())
+            lastTradedPrice = openingPrice;
         return trades;
     }
 
     private MatchResult continuousMatching(Order order, Matcher matcher) {
         MatchResult matchResult = matcher.execute(order, matchingState, openingPrice);
-        if(!matchResult.trades().isEmpty())
-            lastTradedPrice = matchResult.trades().getLast().getPrice();
+        if (matchResult.outcome() != MatchingOutcome.EXECUTED) {
+            orderPool.release(order);
+            return matchResult;
+        }
+        if(matchResult.hasTrades())
+            lastTradedPrice = matchResult.lastTradePrice();
         return matchResult;
     }
 
     private MatchResult auctionMatching(Order order) {
         orderBook.enqueue(order);
-        openingPrice = orderBook.calculateOpeningPriceAccordingTo(lastTradedPrice);
+        openingPrice = orderBook.calculateOpeningPriceAccordingTo(lastTradedPrice, tickSize);
         tradableQuantity = orderBook.calculateTradableQuantityAccordingTo(openingPrice);
         return null;
     }
@@ -1,13 +1,13 @@
 package ir.ramtung.tinyme.domain.entity;
 
+import ir.ramtung.tinyme.util.ChunkedIntArray;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.util.HashMap;
-import java.util.Map;
-
+// Positions and the quantity already committed to resting sell orders are kept per security id.
+// A security's slots are only written by the shard that owns the security, so no locking is needed.
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Builder
@@ -17,23 +17,44 @@ public class Shareholder {
     private long shareholderId;
     @Getter
     private String name;
-    @Getter
+    @ToString.Exclude
+    @Builder.Default
+    private final ChunkedIntArray positions = new ChunkedIntArray();
+    @ToString.Exclude
     @Builder.Default
-    private Map<Security, Integer> positions = new HashMap<>();
+    private final ChunkedIntArray committedSellQuantities = new ChunkedIntArray();
 
     public void incPosition(Security security, int amount) {
         assert amount >= 0;
-        positions.put(security, positions.getOrDefault(security, 0) + amount);
+        positions.add(security.getId(), amount);
     }
 
     public void decPosition(Security security, int amount) {
         assert amount >= 0;
-        int currentPositions = positions.getOrDefault(security, 0);
+        int currentPositions = positions.get(security.getId());
         if (currentPositions < amount)
             throw new IllegalArgumentException("Amount to be decreased is greater than shareholder's current position");
-        positions.put(security, currentPositions - amount);
+        positions.set(security.getId(), currentPositions - amount);
     }
+
+    public int getPosition(Security security) {
+        return positions.get(security.getId());
+    }
+
     public boolean hasEnoughPositionsOn(Security security, int position) {
-        return positions.getOrDefault(security, 0) >= position;
+        return positions.get(security.getId()) >= position;
+    }
+
+    public void commitSellQuantity(Security security, int delta) {
+        committedSellQuantities.add(security.getId(), delta);
+    }
+
+    public int getCommittedSellQuantity(Security security) {
+        return committedSellQuantities.get(security.getId());
+    }
+
+    public boolean canSell(Security security, int quantity) {
+        int id = security.getId();
+        return positions.get(id) - committedSellQuantities.get(id) >= quantity;
     }
 }
@@ -0,0 +1,228 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+import ir.ramtung.tinyme.util.LongIntHashMap;
+import ir.ramtung.tinyme.util.RecordSlab;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+// Stop orders are plain request data that nothing looks at until the last traded price reaches
+// them, so each one is kept as a fixed-size record in a RecordSlab (on or off the heap) holding ids
+// instead of references. Records with the same stop price are chained through their prev/next
+// fields in arrival order, and an EnterOrderRq is only built again for an order that leaves the
+// book. An update keeps the order's arrival. Buy stops with the same stop price activate oldest
+// first and sell stops newest first, as they always have.
+public class StopOrderBook {
+    private static final int ORDER_ID = 0;
+    private static final int REQUEST_ID = 8;
+    private static final int BROKER_ID = 16;
+    private static final int SHAREHOLDER_ID = 24;
+    private static final int ENTRY_SECOND = 32;
+    private static final int ENTRY_NANO = 40;
+    private static final int QUANTITY = 44;
+    private static final int PRICE = 48;
+    private static final int STOP_PRICE = 52;
+    private static final int PEAK_SIZE = 56;
+    private static final int MINIMUM_EXECUTION_QUANTITY = 60;
+    private static final int PREV = 64;
+    private static final int NEXT = 68;
+    private static final int SIDE = 72;
+    private static final int REQUEST_TYPE = 73;
+    private static final int ARRIVAL = 80;
+    private static final int RECORD_SIZE = 88;
+
+    private static final int NONE = -1;
+    private static final long NO_ENTRY_TIME = Long.MIN_VALUE;
+    private static final Side[] SIDES = Side.values();
+    private static final OrderEntryType[] REQUEST_TYPES = OrderEntryType.values();
+
+    private static final class Level {
+        private int head = NONE;
+        private int tail = NONE;
+    }
+
+    private final RecordSlab records;
+    private final TreeMap<Integer, Level> buyStops;
+    private final TreeMap<Integer, Level> sellStops;
+    private final LongIntHashMap buyStopById;
+    private final LongIntHashMap sellStopById;
+    private String securityIsin;
+    private long arrivals;
+
+    public StopOrderBook() {
+        this(false);
+    }
+
+    public StopOrderBook(boolean offHeap) {
+        records = new RecordSlab(RECORD_SIZE, offHeap);
+        buyStops = new TreeMap<>(Comparator.naturalOrder());
+        sellStops = new TreeMap<>(Comparator.reverseOrder());
+        buyStopById = new LongIntHashMap();
+        sellStopById = new LongIntHashMap();
+    }
+
+    private TreeMap<Integer, Level> getStops(Side side) {
+        return side == Side.BUY ? buyStops : sellStops;
+    }
+
+    private LongIntHashMap getStopById(Side side) {
+        return side == Side.BUY ? buyStopById : sellStopById;
+    }
+
+    public void add(EnterOrderRq stopOrder) {
+        if (securityIsin == null)
+            securityIsin = stopOrder.getSecurityIsin();
+        int slot = store(stopOrder);
+        records.putLong(slot, ARRIVAL, arrivals++);
+        link(getStops(stopOrder.getSide()), slot);
+        getStopById(stopOrder.getSide()).put(stopOrder.getOrderId(), slot);
+    }
+
+    public EnterOrderRq update(Side side, long orderId, int price, int quantity, int stopPrice) {
+        int slot = getStopById(side).get(orderId);
+        if (slot == LongIntHashMap.MISSING)
+            return null;
+        EnterOrderRq previous = load(slot);
+        records.putInt(slot, PRICE, price);
+        records.putInt(slot, QUANTITY, quantity);
+        if (stopPrice != previous.getStopPrice()) {
+            TreeMap<Integer, Level> stops = getStops(side);
+            unlink(stops, previous.getStopPrice(), slot);
+            records.putInt(slot, STOP_PRICE, stopPrice);
+            link(stops, slot);
+        }
+        return previous;
+    }
+
+    private void link(TreeMap<Integer, Level> stops, int slot) {
+        Level level = stops.computeIfAbsent(records.getInt(slot, STOP_PRICE), stopPrice -> new Level());
+        long arrival = records.getLong(slot, ARRIVAL);
+        int prev = level.tail;
+        while (prev != NONE && records.getLong(prev, ARRIVAL) > arrival)
+            prev = records.getInt(prev, PREV);
+        int next = prev == NONE ? level.head : records.getInt(prev, NEXT);
+        records.putInt(slot, PREV, prev);
+        records.putInt(slot, NEXT, next);
+        if (prev == NONE)
+            level.head = slot;
+        else
+            records.putInt(prev, NEXT, slot);
+        if (next == NONE)
+            level.tail = slot;
+        else
+            records.putInt(next, PREV, slot);
+    }
+
+    private void unlink(TreeMap<Integer, Level> stops, int stopPrice, int slot) {
+        Level level = stops.get(stopPrice);
+        int prev = records.getInt(slot, PREV);
+        int next = records.getInt(slot, NEXT);
+        if (prev == NONE)
+            level.head = next;
+        else
+            records.putInt(prev, NEXT, next);
+        if (next == NONE)
+            level.tail = prev;
+        else
+            records.putInt(next, PREV, prev);
+        if (level.head == NONE)
+            stops.remove(stopPrice);
+    }
+
+    public EnterOrderRq findByOrderId(Side side, long orderId) {
+        int slot = getStopById(side).get(orderId);
+        return slot == LongIntHashMap.MISSING ? null : load(slot);
+    }
+
+    public boolean hasOrder(Side side, long orderId) {
+        return getStopById(side).containsKey(orderId);
+    }
+
+    public EnterOrderRq removeByOrderId(Side side, long orderId) {
+        int slot = getStopById(side).remove(orderId);
+        if (slot == LongIntHashMap.MISSING)
+            return null;
+        EnterOrderRq stopOrder = load(slot);
+        unlink(getStops(side), stopOrder.getStopPrice(), slot);
+        records.free(slot);
+        return stopOrder;
+    }
+
+    public List<EnterOrderRq> popActivated(Side side, int lastTradedPrice) {
+        TreeMap<Integer, Level> stops = getStops(side);
+        LongIntHashMap stopById = getStopById(side);
+        List<EnterOrderRq> activated = new ArrayList<>();
+        while (!stops.isEmpty() && stops.comparator().compare(stops.firstKey(), lastTradedPrice) <= 0) {
+            Level level = stops.pollFirstEntry().getValue();
+            int link = side == Side.BUY ? NEXT : PREV;
+            for (int slot = side == Side.BUY ? level.head : level.tail; slot != NONE; ) {
+                int following = records.getInt(slot, link);
+                stopById.remove(records.getLong(slot, ORDER_ID));
+                activated.add(load(slot));
+                records.free(slot);
+                slot = following;
+            }
+        }
+        return activated;
+    }
+
+    public List<EnterOrderRq> getStopOrders() {
+        List<EnterOrderRq> stopOrders = new ArrayList<>();
+        for (Level level : buyStops.values())
+            for (int slot = level.head; slot != NONE; slot = records.getInt(slot, NEXT))
+                stopOrders.add(load(slot));
+        for (Level level : sellStops.values())
+            for (int slot = level.head; slot != NONE; slot = records.getInt(slot, NEXT))
+                stopOrders.add(load(slot));
+        return stopOrders;
+    }
+
+    public boolean isEmpty() {
+        return buyStopById.isEmpty() && sellStopById.isEmpty();
+    }
+
+    private int store(EnterOrderRq stopOrder) {
+        int slot = records.allocate();
+        records.putLong(slot, ORDER_ID, stopOrder.getOrderId());
+        records.putLong(slot, REQUEST_ID, stopOrder.getRequestId());
+        records.putLong(slot, BROKER_ID, stopOrder.getBrokerId());
+        records.putLong(slot, SHAREHOLDER_ID, stopOrder.getShareholderId());
+        LocalDateTime entryTime = stopOrder.getEntryTime();
+        records.putLong(slot, ENTRY_SECOND, entryTime == null ? NO_ENTRY_TIME : entryTime.toEpochSecond(ZoneOffset.UTC));
+        records.putInt(slot, ENTRY_NANO, entryTime == null ? 0 : entryTime.getNano());
+        records.putInt(slot, QUANTITY, stopOrder.getQuantity());
+        records.putInt(slot, PRICE, stopOrder.getPrice());
+        records.putInt(slot, STOP_PRICE, stopOrder.getStopPrice());
+        records.putInt(slot, PEAK_SIZE, stopOrder.getPeakSize());
+        records.putInt(slot, MINIMUM_EXECUTION_QUANTITY, stopOrder.getMinimumExecutionQuantity());
+        records.putByte(slot, SIDE, (byte) stopOrder.getSide().ordinal());
+        records.putByte(slot, REQUEST_TYPE, (byte) stopOrder.getRequestType().ordinal());
+        return slot;
+    }
+
+    private EnterOrderRq load(int slot) {
+        EnterOrderRq stopOrder = new EnterOrderRq();
+        stopOrder.setOrderId(records.getLong(slot, ORDER_ID));
+        stopOrder.setRequestId(records.getLong(slot, REQUEST_ID));
+        stopOrder.setBrokerId(records.getLong(slot, BROKER_ID));
+        stopOrder.setShareholderId(records.getLong(slot, SHAREHOLDER_ID));
+        long entrySecond = records.getLong(slot, ENTRY_SECOND);
+        if (entrySecond != NO_ENTRY_TIME)
+            stopOrder.setEntryTime(LocalDateTime.ofEpochSecond(entrySecond, records.getInt(slot, ENTRY_NANO), ZoneOffset.UTC));
+        stopOrder.setQuantity(records.getInt(slot, QUANTITY));
+        stopOrder.setPrice(records.getInt(slot, PRICE));
+        stopOrder.setStopPrice(records.getInt(slot, STOP_PRICE));
+        stopOrder.setPeakSize(records.getInt(slot, PEAK_SIZE));
+        stopOrder.setMinimumExecutionQuantity(records.getInt(slot, MINIMUM_EXECUTION_QUANTITY));
+        stopOrder.setSide(SIDES[records.getByte(slot, SIDE)]);
+        stopOrder.setRequestType(REQUEST_TYPES[records.getByte(slot, REQUEST_TYPE)]);
+        stopOrder.setSecurityIsin(securityIsin);
+        return stopOrder;
+    }
+}
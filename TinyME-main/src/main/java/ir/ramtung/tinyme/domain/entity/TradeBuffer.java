@@ -0,0 +1,148 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+// Reusable per-security record of the trades of the current match. Trades are kept as primitive
+// columns plus references to the live orders and their ids and quantities at trade time, so
+// matching allocates nothing per fill; Trade snapshots are only built when somebody asks for them.
+// An order that left the book stays readable until its pool recycles it; a snapshot asked for
+// after that is refused rather than built from whatever order the object has become.
+public class TradeBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] price;
+    private int[] quantity;
+    private Order[] buy;
+    private Order[] sell;
+    private long[] buyOrderId;
+    private long[] sellOrderId;
+    private int[] buyQuantity;
+    private int[] sellQuantity;
+    private int size;
+    private int generation;
+
+    public TradeBuffer() {
+        price = new int[INITIAL_CAPACITY];
+        quantity = new int[INITIAL_CAPACITY];
+        buy = new Order[INITIAL_CAPACITY];
+        sell = new Order[INITIAL_CAPACITY];
+        buyOrderId = new long[INITIAL_CAPACITY];
+        sellOrderId = new long[INITIAL_CAPACITY];
+        buyQuantity = new int[INITIAL_CAPACITY];
+        sellQuantity = new int[INITIAL_CAPACITY];
+    }
+
+    public void clear() {
+        Arrays.fill(buy, 0, size, null);
+        Arrays.fill(sell, 0, size, null);
+        size = 0;
+        generation++;
+    }
+
+    public int add(int price, int quantity, Order order1, Order order2) {
+        if (size == this.price.length)
+            grow();
+        Order buyOrder = order1.getSide() == Side.BUY ? order1 : order2;
+        Order sellOrder = order1.getSide() == Side.BUY ? order2 : order1;
+        this.price[size] = price;
+        this.quantity[size] = quantity;
+        buy[size] = buyOrder;
+        sell[size] = sellOrder;
+        buyOrderId[size] = buyOrder.getOrderId();
+        sellOrderId[size] = sellOrder.getOrderId();
+        buyQuantity[size] = buyOrder.getTotalQuantity();
+        sellQuantity[size] = sellOrder.getTotalQuantity();
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = price.length << 1;
+        price = Arrays.copyOf(price, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        buy = Arrays.copyOf(buy, capacity);
+        sell = Arrays.copyOf(sell, capacity);
+        buyOrderId = Arrays.copyOf(buyOrderId, capacity);
+        sellOrderId = Arrays.copyOf(sellOrderId, capacity);
+        buyQuantity = Arrays.copyOf(buyQuantity, capacity);
+        sellQuantity = Arrays.copyOf(sellQuantity, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getPrice(int trade) {
+        return price[trade];
+    }
+
+    public int getQuantity(int trade) {
+        return quantity[trade];
+    }
+
+    public long getTradedValue(int trade) {
+        return (long) price[trade] * quantity[trade];
+    }
+
+    public Order getBuy(int trade) {
+        return buy[trade];
+    }
+
+    public Order getSell(int trade) {
+        return sell[trade];
+    }
+
+    public long getBuyOrderId(int trade) {
+        return buyOrderId[trade];
+    }
+
+    public long getSellOrderId(int trade) {
+        return sellOrderId[trade];
+    }
+
+    public int executedQuantity() {
+        int total = 0;
+        for (int i = 0; i < size; i++)
+            total += quantity[i];
+        return total;
+    }
+
+    public long tradedValue() {
+        long total = 0;
+        for (int i = 0; i < size; i++)
+            total += getTradedValue(i);
+        return total;
+    }
+
+    public Order sellSnapshot(int trade) {
+        return snapshot(sell[trade], sellOrderId[trade], sellQuantity[trade]);
+    }
+
+    public Trade toTrade(int trade) {
+        Order buySnapshot = snapshot(buy[trade], buyOrderId[trade], buyQuantity[trade]);
+        return new Trade(buy[trade].getSecurity(), price[trade], quantity[trade], buySnapshot, sellSnapshot(trade));
+    }
+
+    private Order snapshot(Order order, long orderId, int quantity) {
+        if (order.released || order.getOrderId() != orderId)
+            throw new IllegalStateException("Order " + orderId + " of the trade has been recycled");
+        return order.snapshotWithQuantity(quantity);
+    }
+
+    public LinkedList<Trade> toTrades(int generation) {
+        if (generation != this.generation)
+            throw new IllegalStateException("Trade buffer has been reused by a later match");
+        LinkedList<Trade> trades = new LinkedList<>();
+        for (int i = 0; i < size; i++)
+            trades.add(toTrade(i));
+        return trades;
+    }
+}
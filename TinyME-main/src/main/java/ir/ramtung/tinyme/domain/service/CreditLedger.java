@@ -0,0 +1,23 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+
+// Where matching and order entry ask whether a broker's credit allows something. DIRECT asks the
+// broker itself; other ledgers wrap it, as the journal does to record and replay the outcomes.
+public interface CreditLedger {
+    CreditLedger DIRECT = new CreditLedger() {
+        @Override
+        public boolean hasEnoughCredit(Broker broker, long amount) {
+            return broker.hasEnoughCredit(amount);
+        }
+
+        @Override
+        public boolean reserveCredit(Broker broker, long amount) {
+            return broker.reserveCredit(amount);
+        }
+    };
+
+    boolean hasEnoughCredit(Broker broker, long amount);
+
+    boolean reserveCredit(Broker broker, long amount);
+}
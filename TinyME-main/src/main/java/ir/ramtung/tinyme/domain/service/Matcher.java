@@ -3,66 +3,104 @@ package ir.ramtung.tinyme.domain.service;
 import ir.ramtung.tinyme.domain.entity.*;
 import ir.ramtung.tinyme.domain.service.MatchingControls.MatchingControlsList;
 import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedList;
-import java.util.ListIterator;
 
 @Service
 public class Matcher {
-    private MatchingControlsList matchingControls = new MatchingControlsList();
+    private final CreditLedger creditLedger;
+    private final MatchingControlsList matchingControls;
+
+    public Matcher() {
+        this(CreditLedger.DIRECT);
+    }
+
+    @Autowired
+    public Matcher(CreditLedger creditLedger) {
+        this.creditLedger = creditLedger;
+        this.matchingControls = new MatchingControlsList(creditLedger);
+    }
+
+    public CreditLedger getCreditLedger() {
+        return creditLedger;
+    }
 
     public MatchResult match(Order order, MatchingState matchingState, int openingPrice) {
+        MatchingOutcome outcome = matchingControls.tryReserveMatching(order, plan(order, matchingState, openingPrice));
+        if (outcome != MatchingOutcome.EXECUTED)
+            return new MatchResult(outcome, null, new LinkedList<>());
+
         OrderBook orderBook = order.getSecurity().getOrderBook();
-        LinkedList<Trade> trades = new LinkedList<>();
+        TradeBuffer trades = order.getSecurity().getTradeBuffer();
+        trades.clear();
 
         while (orderBook.hasOrderOfType(order.getSide().opposite()) && order.getQuantity() > 0) {
             Order matchingOrder = orderBook.matchWithFirst(order);
             if (matchingOrder == null || (matchingState == MatchingState.AUCTION && matchingOrder.getPrice() > openingPrice))
                 break;
 
-            Trade trade;
-            if(matchingState == MatchingState.AUCTION)
-                trade = new Trade(order.getSecurity(), openingPrice, Math.min(order.getQuantity(), matchingOrder.getQuantity()), order, matchingOrder);
-            else
-                trade = new Trade(order.getSecurity(), matchingOrder.getPrice(), Math.min(order.getQuantity(), matchingOrder.getQuantity()), order, matchingOrder);
-
-            MatchingOutcome outcome = matchingControls.canAcceptTrade(order, trade);
-            if(outcome != MatchingOutcome.EXECUTED) {
-                rollbackTrades(order, trades);
-                return new MatchResult(outcome, null, new LinkedList<>());
-            }
-
-            matchingControls.tradeAccepted(order, trade);
-            trades.add(trade);
+            int price = matchingState == MatchingState.AUCTION ? openingPrice : matchingOrder.getPrice();
+            int trade = trades.add(price, Math.min(order.getQuantity(), matchingOrder.getQuantity()), order, matchingOrder);
+            matchingControls.tradeAccepted(order, trades, trade);
         }
         return MatchResult.executed(order, trades);
     }
 
-    private void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
-        assert newOrder.getSide() == Side.BUY;
-        newOrder.getBroker().increaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
-        trades.forEach(trade -> trade.getSell().getBroker().decreaseCreditBy(trade.getTradedValue()));
-
-        ListIterator<Trade> it = trades.listIterator(trades.size());
-        while (it.hasPrevious()) {
-            newOrder.getSecurity().getOrderBook().restoreSellOrder(it.previous().getSell());
+    // Works out what the loop in match() would fill without touching the book, so a matching the
+    // controls reject leaves nothing to undo. Every fill at a level has the level's price and the
+    // order keeps taking from the level until one of them runs out, so only the level's total
+    // quantity matters; icebergs replenishing at the back of their level change nothing.
+    private MatchPlan plan(Order order, MatchingState matchingState, int openingPrice) {
+        int remaining = order.getQuantity();
+        int executed = 0;
+        long tradedValue = 0;
+        for (PriceLevel level : order.getSecurity().getOrderBook().getLevels(order.getSide().opposite())) {
+            if (remaining == 0 || !order.matchesPrice(level.getPrice())
+                    || (matchingState == MatchingState.AUCTION && level.getPrice() > openingPrice))
+                break;
+            int price = matchingState == MatchingState.AUCTION ? openingPrice : level.getPrice();
+            int filled = level.fillableQuantity(remaining);
+            executed += filled;
+            remaining -= filled;
+            tradedValue += (long) price * filled;
         }
+        return new MatchPlan(executed, tradedValue, remaining);
     }
 
     public MatchResult execute(Order order, MatchingState matchingState, int openingPrice) {
         MatchResult matchResult = match(order, matchingState, openingPrice);
-        if (matchResult.outcome() == MatchingOutcome.NOT_ENOUGH_CREDIT)
-            return matchResult;
+        if (matchResult.outcome() == MatchingOutcome.EXECUTED)
+            matchingControls.matchingAccepted(order, matchResult);
+        return matchResult;
+    }
 
-        MatchingOutcome outcome = matchingControls.canAcceptMatching(order, matchResult);
-        if(outcome != MatchingOutcome.EXECUTED) {
-            rollbackTrades(order, matchResult.trades());
-            return new MatchResult(outcome, null, new LinkedList<>());
-        }
+    public TradeBuffer uncross(Security security, int openingPrice) {
+        OrderBook orderBook = security.getOrderBook();
+        TradeBuffer trades = security.getTradeBuffer();
+        trades.clear();
 
-        matchingControls.matchingAccepted(order, matchResult);
+        while (orderBook.hasOrderOfType(Side.BUY) && orderBook.hasOrderOfType(Side.SELL)) {
+            Order buyOrder = orderBook.getFirst(Side.BUY);
+            Order sellOrder = orderBook.getFirst(Side.SELL);
+            if (buyOrder.getPrice() < openingPrice || sellOrder.getPrice() > openingPrice)
+                break;
 
-        return matchResult;
+            int quantity = Math.min(buyOrder.getQuantity(), sellOrder.getQuantity());
+            trades.add(openingPrice, quantity, buyOrder, sellOrder);
+            orderBook.decreaseFirst(Side.BUY, quantity);
+            orderBook.decreaseFirst(Side.SELL, quantity);
+        }
+
+        for (int trade = 0; trade < trades.size(); trade++) {
+            Order buyOrder = trades.getBuy(trade);
+            Order sellOrder = trades.getSell(trade);
+            buyOrder.getBroker().releaseCredit((long) (buyOrder.getPrice() - trades.getPrice(trade)) * trades.getQuantity(trade));
+            sellOrder.getBroker().increaseCreditBy(trades.getTradedValue(trade));
+            buyOrder.getShareholder().incPosition(security, trades.getQuantity(trade));
+            sellOrder.getShareholder().decPosition(security, trades.getQuantity(trade));
+        }
+        return trades;
     }
-}
\ No newline at end of file
+}
@@ -1,38 +1,40 @@
 package ir.ramtung.tinyme.domain.service.MatchingControls;
 
 import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.domain.entity.MatchPlan;
 import ir.ramtung.tinyme.domain.entity.MatchResult;
 import ir.ramtung.tinyme.domain.entity.Order;
 import ir.ramtung.tinyme.domain.entity.Side;
-import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
+import ir.ramtung.tinyme.domain.service.CreditLedger;
 import org.springframework.stereotype.Component;
 
 @Component
 public class CreditControl implements MatchingControl {
-    public boolean canAcceptTrade(Order order, Trade trade) {
-        if(order.getSide() == Side.BUY && !trade.buyerHasEnoughCredit())
-            return false;
-        return true;
+    private final CreditLedger creditLedger;
+
+    public CreditControl(CreditLedger creditLedger) {
+        this.creditLedger = creditLedger;
+    }
+
+    public boolean canAcceptTrades(Order order, MatchPlan plan) {
+        if (order.getSide() != Side.BUY)
+            return true;
+        return creditLedger.hasEnoughCredit(order.getBroker(), plan.tradedValue());
     }
-    public void tradeAccepted(Order order, Trade trade) {
-        if (order.getSide() == Side.BUY) {
-            if(order.getSecurity().getMatchingState() == MatchingState.AUCTION)
-                order.getBroker().increaseCreditBy( (order.getPrice() - trade.getPrice()) * trade.getQuantity());
-            else
-                trade.decreaseBuyersCredit();
-        }
-        trade.increaseSellersCredit();
+    public void tradeAccepted(Order order, TradeBuffer trades, int trade) {
+        if (order.getSide() == Side.BUY && order.getSecurity().getMatchingState() == MatchingState.AUCTION)
+            order.getBroker().releaseCredit((long) (order.getPrice() - trades.getPrice(trade)) * trades.getQuantity(trade));
     }
-    public boolean canAcceptMatching(Order order, MatchResult matchResult) {
-        if (order.getSecurity().getMatchingState() == MatchingState.CONTINUOUS && matchResult.remainder().getQuantity() > 0)
-            if (order.getSide() == Side.BUY)
-                if (!order.getBroker().hasEnoughCredit(order.getValue()))
-                    return false;
-        return true;
+    public boolean tryReserveMatching(Order order, MatchPlan plan) {
+        if (order.getSide() != Side.BUY || order.getSecurity().getMatchingState() != MatchingState.CONTINUOUS)
+            return true;
+        long value = plan.tradedValue() + (long) order.getPrice() * plan.remainingQuantity();
+        return creditLedger.reserveCredit(order.getBroker(), value);
     }
     public void matchingAccepted(Order order, MatchResult matchResult) {
-        if (order.getSecurity().getMatchingState() == MatchingState.CONTINUOUS && matchResult.remainder().getQuantity() > 0)
-            if (order.getSide() == Side.BUY)
-                order.getBroker().decreaseCreditBy(order.getValue());
+        TradeBuffer trades = matchResult.tradeBuffer();
+        for (int trade = 0; trade < trades.size(); trade++)
+            trades.getSell(trade).getBroker().increaseCreditBy(trades.getTradedValue(trade));
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,12 @@
 package ir.ramtung.tinyme.domain.service.MatchingControls;
 
+import ir.ramtung.tinyme.domain.entity.MatchPlan;
 import ir.ramtung.tinyme.domain.entity.MatchResult;
 import ir.ramtung.tinyme.domain.entity.Order;
-import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
 
 public interface MatchingControl {
-    default boolean canAcceptMatching(Order order, MatchResult matchResult) { return true; }
+    default boolean canAcceptMatching(Order order, MatchPlan plan) { return true; }
     default void matchingAccepted(Order order, MatchResult matchResult) {}
-    default boolean canAcceptTrade(Order order, Trade trade) { return true; }
-    default void tradeAccepted(Order order, Trade trade) {}
-}
\ No newline at end of file
+    default void tradeAccepted(Order order, TradeBuffer trades, int trade) {}
+}
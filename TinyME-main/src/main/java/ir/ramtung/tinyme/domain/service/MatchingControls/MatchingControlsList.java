@@ -1,33 +1,37 @@
 package ir.ramtung.tinyme.domain.service.MatchingControls;
 
+import ir.ramtung.tinyme.domain.entity.MatchPlan;
 import ir.ramtung.tinyme.domain.entity.MatchResult;
 import ir.ramtung.tinyme.domain.entity.MatchingOutcome;
 
 import ir.ramtung.tinyme.domain.entity.Order;
-import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
+import ir.ramtung.tinyme.domain.service.CreditLedger;
 import org.springframework.stereotype.Component;
 @Component
 public class MatchingControlsList {
-    private CreditControl creditControl = new CreditControl();
+    private CreditControl creditControl;
     private PositionControl positionControl = new PositionControl();
     private OrderBookControl orderBookControl = new OrderBookControl();
     private MinimumExecutionQuantityControl minimumExecutionQuantityControl = new MinimumExecutionQuantityControl();
 
-    public MatchingOutcome canAcceptTrade(Order order, Trade trade) {
-        if(!creditControl.canAcceptTrade(order, trade))
-            return MatchingOutcome.NOT_ENOUGH_CREDIT;
-        return MatchingOutcome.EXECUTED;
+    public MatchingControlsList(CreditLedger creditLedger) {
+        creditControl = new CreditControl(creditLedger);
     }
 
-    public void tradeAccepted(Order order, Trade trade) {
-        creditControl.tradeAccepted(order, trade);
-        orderBookControl.tradeAccepted(order, trade);
+    public void tradeAccepted(Order order, TradeBuffer trades, int trade) {
+        creditControl.tradeAccepted(order, trades, trade);
+        orderBookControl.tradeAccepted(order, trades, trade);
     }
 
-    public MatchingOutcome canAcceptMatching(Order order, MatchResult matchResult) {
-        if(!minimumExecutionQuantityControl.canAcceptMatching(order, matchResult))
+    // Runs the side-effect free checks first; the buyer's credit is only reserved, last, for a
+    // matching that passes them all, so any outcome other than EXECUTED has reserved nothing.
+    public MatchingOutcome tryReserveMatching(Order order, MatchPlan plan) {
+        if(!creditControl.canAcceptTrades(order, plan))
+            return MatchingOutcome.NOT_ENOUGH_CREDIT;
+        if(!minimumExecutionQuantityControl.canAcceptMatching(order, plan))
             return MatchingOutcome.NOT_ENOUGH_EXECUTED_QUANTITY;
-        if(!creditControl.canAcceptMatching(order, matchResult))
+        if(!creditControl.tryReserveMatching(order, plan))
             return MatchingOutcome.NOT_ENOUGH_CREDIT;
         return MatchingOutcome.EXECUTED;
     }
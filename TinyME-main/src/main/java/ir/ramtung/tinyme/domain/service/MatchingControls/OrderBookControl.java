@@ -9,23 +9,32 @@ public class OrderBookControl implements MatchingControl {
     public void matchingAccepted(Order order, MatchResult matchResult) {
         if (order.getSecurity().getMatchingState() == MatchingState.CONTINUOUS && matchResult.remainder().getQuantity() > 0)
             order.getSecurity().getOrderBook().enqueue(matchResult.remainder());
-        else if(order.getSecurity().getMatchingState() == MatchingState.AUCTION && matchResult.remainder().getQuantity() == 0)
+        else if (order.getSecurity().getMatchingState() == MatchingState.CONTINUOUS)
+            order.getSecurity().getOrderPool().release(order);
+        else if(order.getSecurity().getMatchingState() == MatchingState.AUCTION && matchResult.remainder().getQuantity() == 0) {
             order.getSecurity().getOrderBook().removeByOrderId(order.getSide(), order.getOrderId());
+            order.getSecurity().getOrderPool().release(order);
+        }
+        else if(order.getSecurity().getMatchingState() == MatchingState.AUCTION)
+            order.getSecurity().getOrderBook().updateQuantity(order);
     }
-    public void tradeAccepted(Order order, Trade trade) {
+    public void tradeAccepted(Order order, TradeBuffer trades, int trade) {
         OrderBook orderBook = order.getSecurity().getOrderBook();
         Order matchingOrder = orderBook.matchWithFirst(order);
         if (order.getQuantity() >= matchingOrder.getQuantity()) {
             order.decreaseQuantity(matchingOrder.getQuantity());
-            orderBook.removeFirst(matchingOrder.getSide());
             if (matchingOrder instanceof IcebergOrder icebergOrder) {
-                icebergOrder.decreaseQuantity(matchingOrder.getQuantity());
-                icebergOrder.replenish();
-                if (icebergOrder.getQuantity() > 0)
-                    orderBook.enqueue(icebergOrder);
+                icebergOrder.decreaseQuantity(icebergOrder.getQuantity());
+                if (icebergOrder.getTotalQuantity() > 0) {
+                    orderBook.replenish(icebergOrder);
+                    return;
+                }
             }
+            orderBook.removeFirst(matchingOrder.getSide());
+            order.getSecurity().getOrderPool().release(matchingOrder);
         } else {
             matchingOrder.decreaseQuantity(order.getQuantity());
+            orderBook.updateQuantity(matchingOrder);
             order.makeQuantityZero();
         }
     }
@@ -2,17 +2,16 @@ package ir.ramtung.tinyme.domain.service.MatchingControls;
 
 import ir.ramtung.tinyme.domain.entity.MatchResult;
 import ir.ramtung.tinyme.domain.entity.Order;
-import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
 import org.springframework.stereotype.Component;
 
 @Component
 public class PositionControl implements MatchingControl {
     public void matchingAccepted(Order order, MatchResult matchResult) {
-        if (!matchResult.trades().isEmpty()) {
-            for (Trade trade : matchResult.trades()) {
-                trade.getBuy().getShareholder().incPosition(trade.getSecurity(), trade.getQuantity());
-                trade.getSell().getShareholder().decPosition(trade.getSecurity(), trade.getQuantity());
-            }
+        TradeBuffer trades = matchResult.tradeBuffer();
+        for (int trade = 0; trade < trades.size(); trade++) {
+            trades.getBuy(trade).getShareholder().incPosition(order.getSecurity(), trades.getQuantity(trade));
+            trades.getSell(trade).getShareholder().decPosition(order.getSecurity(), trades.getQuantity(trade));
         }
     }
 }
\ No newline at end of file
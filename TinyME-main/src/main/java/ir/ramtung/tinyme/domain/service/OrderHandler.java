@@ -22,7 +22,6 @@ public class OrderHandler {
     ShareholderRepository shareholderRepository;
     EventPublisher eventPublisher;
     Matcher matcher;
-    LinkedList<EnterOrderRq> InActiveOrders = new LinkedList<>();
 
     public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher) {
         this.securityRepository = securityRepository;
@@ -33,12 +32,14 @@ public class OrderHandler {
     }
 
     public void handleEnterOrder(EnterOrderRq enterOrderRq) {
-        try {
-            validateEnterOrderRq(enterOrderRq);
+        handleEnterOrder(enterOrderRq, securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin()));
+    }
 
-            Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
+    public void handleEnterOrder(EnterOrderRq enterOrderRq, Security security) {
+        try {
             Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
             Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
+            validateEnterOrderRq(enterOrderRq, security, broker, shareholder);
 
             if(!acceptEnteredOrder(enterOrderRq, security, broker, shareholder))
                 return;
@@ -46,22 +47,22 @@ public class OrderHandler {
             MatchResult matchResult;
             if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER) {
                 if (OrderCanBeActivated(enterOrderRq, security.getLastTradedPrice()))
-                    executeOrder(enterOrderRq);
+                    executeOrder(enterOrderRq, security, broker, shareholder);
                 else {
-                    InActiveOrders.add(enterOrderRq);
+                    security.getStopOrderBook().add(enterOrderRq);
                     return;
                 }
             }
             else {
                 if(enterOrderRq.getStopPrice() > 0)
-                    updateInActiveOrder(enterOrderRq);
+                    updateInActiveOrder(enterOrderRq, security);
                 else {
                     matchResult = security.updateOrder(enterOrderRq, matcher);
                     publishEnteredOrderResult(enterOrderRq, matchResult, security.getOpeningPrice(), security.getTradableQuantity());
                 }
             }
 
-            handleInactiveOrders();
+            handleInactiveOrders(security);
 
         } catch (InvalidRequestException ex) {
             eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
@@ -69,17 +70,19 @@ public class OrderHandler {
     }
 
     public void handleDeleteOrder(DeleteOrderRq deleteOrderRq) {
+        handleDeleteOrder(deleteOrderRq, securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin()));
+    }
+
+    public void handleDeleteOrder(DeleteOrderRq deleteOrderRq, Security security) {
         try {
-            validateDeleteOrderRq(deleteOrderRq);
+            validateDeleteOrderRq(deleteOrderRq, security);
 
-            EnterOrderRq InActiveOrder = (InActiveOrders.size() > 0) ? InActiveOrders.stream().filter(inActiveOrder -> inActiveOrder.getOrderId() == deleteOrderRq.getOrderId()).findFirst().get() : null;
+            EnterOrderRq InActiveOrder = security.getStopOrderBook().removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
             if(InActiveOrder != null) {
                 if(InActiveOrder.getSide() == Side.BUY)
-                        brokerRepository.findBrokerById(InActiveOrder.getBrokerId()).increaseCreditBy(InActiveOrder.getPrice() * InActiveOrder.getQuantity());
-                InActiveOrders.remove(InActiveOrder);
+                        brokerRepository.findBrokerById(InActiveOrder.getBrokerId()).increaseCreditBy((long) InActiveOrder.getPrice() * InActiveOrder.getQuantity());
             }
             else {
-                Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
                 security.deleteOrder(deleteOrderRq);
                 if(security.getMatchingState() == MatchingState.AUCTION)
                     eventPublisher.publish(new OpeningPriceEvent(security.getIsin(), security.getOpeningPrice(), security.getTradableQuantity()));
@@ -91,65 +94,66 @@ public class OrderHandler {
     }
 
     public void handleChangeMatchingState(ChangeMatchingStateRq changeMatchingStateRq) {
+        handleChangeMatchingState(changeMatchingStateRq, securityRepository.findSecurityByIsin(changeMatchingStateRq.getSecurityIsin()));
+    }
+
+    public void handleChangeMatchingState(ChangeMatchingStateRq changeMatchingStateRq, Security security) {
         try {
-            validateChangeMatchingStateRq(changeMatchingStateRq);
-            Security security = securityRepository.findSecurityByIsin(changeMatchingStateRq.getSecurityIsin());
+            validateChangeMatchingStateRq(security);
             if(security.getMatchingState() == MatchingState.AUCTION) {
-                List<Trade> trades = security.reopening(matcher);
-                for(Trade trade : trades)
-                    eventPublisher.publish(new TradeEvent(security.getIsin(), trade.getPrice(), trade.getQuantity(), trade.getBuy().getOrderId(), trade.getSell().getOrderId()));
+                TradeBuffer trades = security.reopening(matcher);
+                for (int trade = 0; trade < trades.size(); trade++)
+                    eventPublisher.publish(new TradeEvent(security.getIsin(), trades.getPrice(trade), trades.getQuantity(trade), trades.getBuyOrderId(trade), trades.getSellOrderId(trade)));
             }
             security.setMatchingState(changeMatchingStateRq.getTargetState());
             eventPublisher.publish(new SecurityStateChangedEvent(security.getIsin(), security.getMatchingState()));
-            handleInactiveOrders();
+            handleInactiveOrders(security);
         } catch (InvalidRequestException ex) {
             eventPublisher.publish(new OrderRejectedEvent(0, 0, ex.getReasons()));
         }
     }
 
-    private void handleInactiveOrders() {
-        LinkedList<EnterOrderRq> ActivatedBuyOrders = new LinkedList<>();
-        LinkedList<EnterOrderRq> ActivatedSellOrders = new LinkedList<>();
-
-        ExtractActiveOrders(ActivatedBuyOrders, ActivatedSellOrders);
-
-        while((!ActivatedBuyOrders.isEmpty()) || (!ActivatedSellOrders.isEmpty())) {
-            Collections.sort(ActivatedBuyOrders, Comparator.comparing(EnterOrderRq::getStopPrice));
-            Collections.sort(ActivatedSellOrders, Comparator.comparing(EnterOrderRq::getStopPrice));
-            Collections.reverse(ActivatedSellOrders);
-            for(EnterOrderRq ActiveBuyOrder : ActivatedBuyOrders) {
-                executeOrder(ActiveBuyOrder);
-                InActiveOrders.remove(ActiveBuyOrder);
-            }
-            for(EnterOrderRq ActiveSellOrder : ActivatedSellOrders) {
-                executeOrder(ActiveSellOrder);
-                InActiveOrders.remove(ActiveSellOrder);
-            }
+    private void handleInactiveOrders(Security security) {
+        StopOrderBook stopOrderBook = security.getStopOrderBook();
+        while (!stopOrderBook.isEmpty()) {
+            List<EnterOrderRq> ActivatedBuyOrders = stopOrderBook.popActivated(Side.BUY, security.getLastTradedPrice());
+            List<EnterOrderRq> ActivatedSellOrders = stopOrderBook.popActivated(Side.SELL, security.getLastTradedPrice());
+            if (ActivatedBuyOrders.isEmpty() && ActivatedSellOrders.isEmpty())
+                break;
+            for(EnterOrderRq ActiveBuyOrder : ActivatedBuyOrders)
+                executeActivatedOrder(ActiveBuyOrder, security);
+            for(EnterOrderRq ActiveSellOrder : ActivatedSellOrders)
+                executeActivatedOrder(ActiveSellOrder, security);
+        }
+    }
 
-            ExtractActiveOrders(ActivatedBuyOrders, ActivatedSellOrders);
+    private void updateInActiveOrder(EnterOrderRq enterOrderRq, Security security) throws InvalidRequestException {
+        StopOrderBook stopOrderBook = security.getStopOrderBook();
+        if (enterOrderRq.getSide() == Side.BUY) {
+            EnterOrderRq InActiveOrder = stopOrderBook.findByOrderId(Side.BUY, enterOrderRq.getOrderId());
+            Broker broker = brokerRepository.findBrokerById(InActiveOrder.getBrokerId());
+            long reservedValue = (long) InActiveOrder.getPrice() * InActiveOrder.getQuantity();
+            long value = (long) enterOrderRq.getPrice() * enterOrderRq.getQuantity();
+            if (value > reservedValue && !matcher.getCreditLedger().reserveCredit(broker, value - reservedValue))
+                throw new InvalidRequestException(Message.BUYER_HAS_NOT_ENOUGH_CREDIT);
+            if (value < reservedValue)
+                broker.increaseCreditBy(reservedValue - value);
         }
+        stopOrderBook.update(enterOrderRq.getSide(), enterOrderRq.getOrderId(),
+                enterOrderRq.getPrice(), enterOrderRq.getQuantity(), enterOrderRq.getStopPrice());
     }
 
-    private void updateInActiveOrder(EnterOrderRq enterOrderRq) {
-        EnterOrderRq InActiveOrder = InActiveOrders.stream().filter(inActiveOrder -> inActiveOrder.getOrderId() == enterOrderRq.getOrderId()).findFirst().get();
-        if((enterOrderRq.getPrice() * enterOrderRq.getQuantity()) > (InActiveOrder.getPrice() * InActiveOrder.getQuantity()))
-            brokerRepository.findBrokerById(InActiveOrder.getBrokerId()).decreaseCreditBy((enterOrderRq.getPrice() * enterOrderRq.getQuantity()) - (InActiveOrder.getPrice() * InActiveOrder.getQuantity()));
-        else
-            brokerRepository.findBrokerById(InActiveOrder.getBrokerId()).increaseCreditBy((InActiveOrder.getPrice() * InActiveOrder.getQuantity()) - (enterOrderRq.getPrice() * enterOrderRq.getQuantity()));
-        InActiveOrder.setPrice(enterOrderRq.getPrice());
-        InActiveOrder.setQuantity(enterOrderRq.getQuantity());
-        InActiveOrder.setStopPrice(enterOrderRq.getStopPrice());
+    private void executeActivatedOrder(EnterOrderRq enterOrderRq, Security security) {
+        executeOrder(enterOrderRq, security, brokerRepository.findBrokerById(enterOrderRq.getBrokerId()),
+                shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()));
     }
 
-    private void executeOrder(EnterOrderRq enterOrderRq) {
-        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
-        Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
-        Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
+    private void executeOrder(EnterOrderRq enterOrderRq, Security security, Broker broker, Shareholder shareholder) {
         MatchResult matchResult = security.newOrder(enterOrderRq, broker, shareholder, matcher);
         publishEnteredOrderResult(enterOrderRq, matchResult, security.getOpeningPrice(), security.getTradableQuantity());
     }
 
-    private void validateEnterOrderRq(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+    private void validateEnterOrderRq(EnterOrderRq enterOrderRq, Security security, Broker broker, Shareholder shareholder) throws InvalidRequestException {
         List<String> errors = new LinkedList<>();
         if (enterOrderRq.getOrderId() <= 0)
             errors.add(Message.INVALID_ORDER_ID);
@@ -166,11 +170,10 @@ public class OrderHandler {
                 errors.add(Message.STOP_LIMIT_ORDER_CANNOT_BE_ICEBERG_OR_HAVE_MINIMUM_EXECUTION_QUANTITY);
         if (enterOrderRq.getPeakSize() < 0 || enterOrderRq.getPeakSize() >= enterOrderRq.getQuantity())
             errors.add(Message.INVALID_PEAK_SIZE);
-        if (brokerRepository.findBrokerById(enterOrderRq.getBrokerId()) == null)
+        if (broker == null)
             errors.add(Message.UNKNOWN_BROKER_ID);
-        if (shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()) == null)
+        if (shareholder == null)
             errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
-        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
         if (security == null)
             errors.add(Message.UNKNOWN_SECURITY_ISIN);
         else {
@@ -196,7 +199,7 @@ public class OrderHandler {
                     }
                 }
                 else
-                    if (InActiveOrders.stream().filter(inActiveOrder -> inActiveOrder.getOrderId() == enterOrderRq.getOrderId()).findFirst().get() == null)
+                    if (!security.getStopOrderBook().hasOrder(enterOrderRq.getSide(), enterOrderRq.getOrderId()))
                         errors.add(Message.ORDER_ID_NOT_FOUND);
             }
         }
@@ -204,25 +207,24 @@ public class OrderHandler {
             throw new InvalidRequestException(errors);
     }
 
-    private void validateDeleteOrderRq(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
+    private void validateDeleteOrderRq(DeleteOrderRq deleteOrderRq, Security security) throws InvalidRequestException {
         List<String> errors = new LinkedList<>();
         if (deleteOrderRq.getOrderId() <= 0)
             errors.add(Message.INVALID_ORDER_ID);
-        Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
         if (security == null)
             errors.add(Message.UNKNOWN_SECURITY_ISIN);
         else{
-            Order order = security.getOrderBook().findByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
-            if (order == null && (InActiveOrders.size() == 0 || InActiveOrders.stream().filter(inActiveOrder -> inActiveOrder.getOrderId() == deleteOrderRq.getOrderId()).findFirst().get() == null))
+            if (!security.getOrderBook().hasOrder(deleteOrderRq.getSide(), deleteOrderRq.getOrderId())
+                    && !security.getStopOrderBook().hasOrder(deleteOrderRq.getSide(), deleteOrderRq.getOrderId()))
                 errors.add(Message.ORDER_ID_NOT_FOUND);
         }
         if (!errors.isEmpty())
             throw new InvalidRequestException(errors);
     }
 
-    private void validateChangeMatchingStateRq(ChangeMatchingStateRq changeMatchingStateRq) throws InvalidRequestException {
+    private void validateChangeMatchingStateRq(Security security) throws InvalidRequestException {
         List<String> errors = new LinkedList<>();
-        if (securityRepository.findSecurityByIsin(changeMatchingStateRq.getSecurityIsin()) == null)
+        if (security == null)
             errors.add(Message.UNKNOWN_SECURITY_ISIN);
         if (!errors.isEmpty())
             throw new InvalidRequestException(errors);
@@ -230,18 +232,17 @@ public class OrderHandler {
 
     private boolean acceptEnteredOrder(EnterOrderRq enterOrderRq, Security security, Broker broker, Shareholder shareholder) {
         if (enterOrderRq.getSide() == Side.SELL &&
-                !shareholder.hasEnoughPositionsOn(security, security.getOrderBook().totalSellQuantityByShareholder(shareholder) + enterOrderRq.getQuantity())) {
+                !shareholder.canSell(security, enterOrderRq.getQuantity())) {
             eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.SELLER_HAS_NOT_ENOUGH_POSITIONS)));
             return false;
         }
         if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER) {
             if (enterOrderRq.getStopPrice() > 0 || security.getMatchingState() == MatchingState.AUCTION) {
                 if (enterOrderRq.getSide() == Side.BUY) {
-                    if (!broker.hasEnoughCredit(enterOrderRq.getPrice() * enterOrderRq.getQuantity())) {
+                    if (!matcher.getCreditLedger().reserveCredit(broker, (long) enterOrderRq.getPrice() * enterOrderRq.getQuantity())) {
                         eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT)));
                         return false;
                     }
-                    broker.decreaseCreditBy(enterOrderRq.getPrice() * enterOrderRq.getQuantity());
                 }
             }
             eventPublisher.publish(new OrderAcceptedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
@@ -271,11 +272,21 @@ public class OrderHandler {
             eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.THE_EXECUTED_QUANTITY_OF_REQUESTED_ORDER_IS_LESS_THAN_MINIMUM_EXECUTION_QUANTITY)));
             return;
         }
-        if (!matchResult.trades().isEmpty()) {
-            eventPublisher.publish(new OrderExecutedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), matchResult.trades().stream().map(TradeDTO::new).collect(Collectors.toList())));
+        if (matchResult.hasTrades()) {
+            eventPublisher.publish(new OrderExecutedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), tradeDTOs(matchResult)));
         }
     }
 
+    private List<TradeDTO> tradeDTOs(MatchResult matchResult) {
+        TradeBuffer trades = matchResult.tradeBuffer();
+        if (trades == null)
+            return matchResult.trades().stream().map(TradeDTO::new).collect(Collectors.toList());
+        List<TradeDTO> tradeDTOs = new ArrayList<>(trades.size());
+        for (int trade = 0; trade < trades.size(); trade++)
+            tradeDTOs.add(new TradeDTO(trades, trade));
+        return tradeDTOs;
+    }
+
     private boolean OrderCanBeActivated(EnterOrderRq enterOrderRq, int lastTradedPrice) {
         if(enterOrderRq.getStopPrice() == 0)
             return true;
@@ -288,18 +299,4 @@ public class OrderHandler {
                 return true;
         return false;
     }
-
-    private void ExtractActiveOrders(LinkedList<EnterOrderRq> ActivatedBuyOrders, LinkedList<EnterOrderRq> ActivatedSellOrders) {
-        ActivatedBuyOrders.clear();
-        ActivatedSellOrders.clear();
-        for(EnterOrderRq inActiveOrder : InActiveOrders) {
-            Security security = securityRepository.findSecurityByIsin(inActiveOrder.getSecurityIsin());
-            if (OrderCanBeActivated(inActiveOrder, security.getLastTradedPrice())) {
-                if(inActiveOrder.getSide() == Side.BUY)
-                    ActivatedBuyOrders.add(inActiveOrder);
-                else
-                    ActivatedSellOrders.add(inActiveOrder);
-            }
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package ir.ramtung.tinyme.journal;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+// The outcomes of the credit checks one request made, in the order it made them, as journaled
+// after the request. JournaledCreditLedger fills them in while a shard handles the request and
+// hands them back, one by one, while the journal is replayed.
+public class CreditDecisions {
+    @Getter
+    private long requestPosition;
+    @Getter
+    private int count;
+    private long[] outcomes;
+    private int replayCount;
+    private int replayed;
+
+    public CreditDecisions() {
+        outcomes = new long[1];
+    }
+
+    public CreditDecisions(long requestPosition, int count, long[] outcomes) {
+        if (count < 0 || outcomes.length < wordsFor(count))
+            throw new IllegalArgumentException("Outcomes do not hold " + count + " decisions");
+        this.requestPosition = requestPosition;
+        this.count = count;
+        this.outcomes = outcomes;
+        this.replayCount = count;
+    }
+
+    public void recordFor(long requestPosition) {
+        this.requestPosition = requestPosition;
+        count = 0;
+        replayCount = 0;
+        replayed = 0;
+        Arrays.fill(outcomes, 0);
+    }
+
+    public boolean outcome(int index) {
+        return (outcomes[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public long[] getOutcomes() {
+        return Arrays.copyOf(outcomes, wordsFor(count));
+    }
+
+    boolean isReplaying() {
+        return replayed < replayCount;
+    }
+
+    boolean replayNext() {
+        return outcome(replayed++);
+    }
+
+    void record(boolean outcome) {
+        if (count == outcomes.length * Long.SIZE)
+            outcomes = Arrays.copyOf(outcomes, outcomes.length * 2);
+        if (outcome)
+            outcomes[count >>> 6] |= 1L << count;
+        count++;
+    }
+
+    public static int wordsFor(int count) {
+        return (count + Long.SIZE - 1) / Long.SIZE;
+    }
+}
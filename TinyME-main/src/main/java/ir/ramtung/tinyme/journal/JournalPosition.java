@@ -0,0 +1,6 @@
+package ir.ramtung.tinyme.journal;
+
+// A point in a particular journal file; the id tells whether the journal has been reset since.
+public record JournalPosition(long journalId, long offset) {
+    public static final JournalPosition START = new JournalPosition(0, 0);
+}
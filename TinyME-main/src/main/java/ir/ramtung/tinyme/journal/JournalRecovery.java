@@ -0,0 +1,83 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.RequestType;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.DataLoader;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import ir.ramtung.tinyme.util.LongHashMap;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Rebuilds the state lost since the last save by replaying the journal on top of what DataLoader
+// loaded, starting from the position a loaded snapshot was taken at if it belongs to this journal.
+// Requests are replayed in journal order on the startup thread through an OrderHandler whose
+// events are discarded, since they have already been published before the restart.
+//
+// Live, the shards run in parallel against shared broker credit, so a credit check could come out
+// differently on one thread. The shards journal the outcome of every credit check after each
+// request, and JournaledCreditLedger hands those outcomes back while the request is replayed,
+// which makes credit, books and positions come out as they were. A decision record follows its
+// request in the journal, so the whole tail is read before anything is replayed. A request whose
+// decisions were not yet journaled when the process died decides its credit checks against the
+// replayed credit, so the last few requests before a crash may be decided differently from the
+// live run.
+@Component
+@Profile("!test")
+public class JournalRecovery {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final DataLoader dataLoader;
+    private final RequestJournal requestJournal;
+    private final JournaledCreditLedger creditLedger;
+    private final OrderHandler replayHandler;
+
+    public JournalRecovery(DataLoader dataLoader, RequestJournal requestJournal, JournaledCreditLedger creditLedger, SecurityRepository securityRepository,
+                           BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, Matcher matcher) {
+        this.dataLoader = dataLoader;
+        this.requestJournal = requestJournal;
+        this.creditLedger = creditLedger;
+        EventPublisher discardingPublisher = new EventPublisher(null, false, 1, 1, 0) {
+            @Override
+            public void publish(Event event) {
+            }
+        };
+        this.replayHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, discardingPublisher, matcher);
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        long start = System.nanoTime();
+        List<Object> requests = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        LongHashMap<CreditDecisions> decisionsByPosition = new LongHashMap<>();
+        requestJournal.replayWithPositions(dataLoader.getJournalPosition(), (record, position) -> {
+            if (record instanceof CreditDecisions decisions)
+                decisionsByPosition.put(decisions.getRequestPosition(), decisions);
+            else {
+                requests.add(record);
+                positions.add(position);
+            }
+        });
+        for (int i = 0; i < requests.size(); i++) {
+            creditLedger.use(decisionsByPosition.get(positions.get(i)));
+            try {
+                RequestType.of(requests.get(i)).handle(replayHandler, requests.get(i));
+            } finally {
+                creditLedger.use(null);
+            }
+        }
+        if (!requests.isEmpty())
+            log.info("Replayed " + requests.size() + " journaled requests in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+}
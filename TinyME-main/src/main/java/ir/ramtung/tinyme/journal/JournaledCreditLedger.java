@@ -0,0 +1,61 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.service.CreditLedger;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Logger;
+
+// Brokers are shared by all execution shards, so whether a credit check passes depends on how the
+// shards happened to interleave. While a shard handles a journaled request it hands this ledger the
+// request's decisions, and every check the request makes is recorded in them; while the journal is
+// replayed on one thread the recorded outcomes are repeated instead. The decisions belong to the
+// request the calling thread is handling, so they are kept per thread. A thread that set none, as
+// when the journal is off, goes straight to the broker.
+//
+// A replayed reservation still takes the credit from the broker, and is turned down if the credit
+// is not there, so a broker never ends a replay with negative credit. A check made after the
+// recorded outcomes run out is decided against the current credit.
+@Component
+public class JournaledCreditLedger implements CreditLedger {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ThreadLocal<CreditDecisions> decisions = new ThreadLocal<>();
+
+    public void use(CreditDecisions requestDecisions) {
+        if (requestDecisions == null)
+            decisions.remove();
+        else
+            decisions.set(requestDecisions);
+    }
+
+    @Override
+    public boolean hasEnoughCredit(Broker broker, long amount) {
+        CreditDecisions current = decisions.get();
+        if (current == null)
+            return broker.hasEnoughCredit(amount);
+        if (current.isReplaying())
+            return current.replayNext();
+        boolean enough = broker.hasEnoughCredit(amount);
+        current.record(enough);
+        return enough;
+    }
+
+    @Override
+    public boolean reserveCredit(Broker broker, long amount) {
+        CreditDecisions current = decisions.get();
+        if (current == null)
+            return broker.reserveCredit(amount);
+        if (current.isReplaying()) {
+            if (!current.replayNext())
+                return false;
+            if (broker.reserveCredit(amount))
+                return true;
+            log.warning("Broker " + broker.getBrokerId() + " cannot cover the reservation of " + amount
+                    + " recorded for the request at journal position " + current.getRequestPosition() + "; it is turned down");
+            return false;
+        }
+        boolean reserved = broker.reserveCredit(amount);
+        current.record(reserved);
+        return reserved;
+    }
+}
@@ -0,0 +1,268 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+// Append-only log of the requests handed to the execution shards, and of the credit decisions the
+// shards made for them (see CreditDecisions). The file is written through
+// memory-mapped windows, so an appended record survives a crash of the process as soon as it is
+// written; a background flusher forces the written range to disk every few hundred microseconds,
+// committing all records appended since the previous force at once.
+//
+// The file starts with a random non-zero journal id, which changes whenever the journal is reset.
+// Record layout: int payload length, int CRC32C of the payload, BinaryCodec frame. A length of
+// zero marks the end of the journal and -1 the end of a window.
+@Component
+public class RequestJournal implements SmartLifecycle {
+    private static final int FILE_HEADER_LENGTH = 8;
+    private static final int HEADER_LENGTH = 8;
+    private static final int END_OF_WINDOW = -1;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BinaryCodec codec = new BinaryCodec();
+    private final CRC32C checksum = new CRC32C();
+    private final Path path;
+    private final int windowSize;
+    private final long flushIntervalNanos;
+
+    private FileChannel channel;
+    private long journalId;
+    private long windowStart;
+    private volatile MappedByteBuffer window;
+    private volatile int written;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public RequestJournal(@Value("${journalPath:}") String path,
+                          @Value("${journalWindowSize:67108864}") int windowSize,
+                          @Value("${journalFlushMicros:500}") long flushMicros) {
+        this.path = path.isEmpty() ? null : Path.of(path);
+        this.windowSize = windowSize;
+        this.flushIntervalNanos = TimeUnit.MICROSECONDS.toNanos(flushMicros);
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    public long replay(Consumer<Object> consumer) throws IOException {
+        return replay(JournalPosition.START, consumer);
+    }
+
+    public long replay(JournalPosition from, Consumer<Object> consumer) throws IOException {
+        return replayWithPositions(from, consumer == null ? null : (record, position) -> consumer.accept(record));
+    }
+
+    // Hands each record to the consumer together with its position, the one append returned for it.
+    public synchronized long replayWithPositions(JournalPosition from, ObjLongConsumer<Object> consumer) throws IOException {
+        if (!isEnabled())
+            return 0;
+        if (channel == null) {
+            open();
+            if (from.journalId() == journalId && from.offset() > FILE_HEADER_LENGTH)
+                seek(from.offset());
+        }
+        long replayed = 0;
+        while (true) {
+            int length = written + Integer.BYTES <= windowSize ? window.getInt(written) : END_OF_WINDOW;
+            if (length == END_OF_WINDOW) {
+                mapWindow(windowStart + windowSize);
+                continue;
+            }
+            if (length == 0)
+                break;
+            int payloadStart = written + HEADER_LENGTH;
+            if (length < 0 || payloadStart + length > windowSize || checksumOf(payloadStart, length) != window.getInt(written + Integer.BYTES)) {
+                log.warning("Discarding torn journal record at offset " + (windowStart + written));
+                clearTail();
+                break;
+            }
+            window.limit(payloadStart + length).position(payloadStart);
+            Object request = codec.decode(window);
+            window.limit(windowSize);
+            if (consumer != null)
+                consumer.accept(request, windowStart + written);
+            written = payloadStart + length;
+            replayed++;
+        }
+        return replayed;
+    }
+
+    public synchronized long append(Object request) {
+        if (!isEnabled())
+            return -1;
+        if (window == null)
+            throw new IllegalStateException("Request journal is not open");
+        int start = written;
+        if (start + HEADER_LENGTH > windowSize) {
+            endWindow(start);
+            start = 0;
+        }
+        try {
+            window.position(start + HEADER_LENGTH);
+            codec.encode(request, window);
+        } catch (BufferOverflowException ex) {
+            endWindow(start);
+            start = 0;
+            window.position(HEADER_LENGTH);
+            codec.encode(request, window);
+        }
+        int end = window.position();
+        int length = end - start - HEADER_LENGTH;
+        window.putInt(start + Integer.BYTES, checksumOf(start + HEADER_LENGTH, length));
+        window.putInt(start, length);
+        written = end;
+        return windowStart + start;
+    }
+
+    public synchronized JournalPosition position() {
+        return new JournalPosition(journalId, windowStart + written);
+    }
+
+    public synchronized void reset() throws IOException {
+        if (!isEnabled())
+            return;
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private int checksumOf(int offset, int length) {
+        window.limit(offset + length).position(offset);
+        checksum.reset();
+        checksum.update(window);
+        window.limit(windowSize);
+        return (int) checksum.getValue();
+    }
+
+    private void clearTail() {
+        for (int i = written; i < windowSize; i++)
+            window.put(i, (byte) 0);
+    }
+
+    private void open() throws IOException {
+        if (channel != null)
+            return;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapWindow(0);
+        journalId = window.getLong(0);
+        if (journalId == 0) {
+            journalId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+            window.putLong(0, journalId);
+        }
+        written = FILE_HEADER_LENGTH;
+    }
+
+    private void seek(long offset) throws IOException {
+        mapWindow(offset - offset % windowSize);
+        written = (int) (offset % windowSize);
+    }
+
+    private void mapWindow(long start) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, start, windowSize);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+        written = 0;
+        window = mapped;
+    }
+
+    private void endWindow(int offset) {
+        if (offset + Integer.BYTES <= windowSize)
+            window.putInt(offset, END_OF_WINDOW);
+        try {
+            window.force();
+            mapWindow(windowStart + windowSize);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private synchronized void close() throws IOException {
+        if (channel == null)
+            return;
+        window.force();
+        window = null;
+        channel.close();
+        channel = null;
+    }
+
+    private void flushWritten() {
+        MappedByteBuffer current = null;
+        int forced = 0;
+        while (running) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            MappedByteBuffer latest = window;
+            int end = written;
+            if (latest != current) {
+                current = latest;
+                forced = 0;
+            }
+            if (current != null && end > forced) {
+                current.force(forced, end - forced);
+                forced = end;
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled())
+            return;
+        try {
+            replay(null);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        running = true;
+        flusher = new Thread(this::flushWritten, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running)
+            return;
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+            close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+}
@@ -1,25 +1,206 @@
 package ir.ramtung.tinyme.messaging;
 
 import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.util.RingBuffer;
+import ir.ramtung.tinyme.util.RingProcessor;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+// In asynchronous mode events are queued in a bounded ring and a background sender ships them in
+// batches of up to eventBatchSize, waiting at most eventLingerMicros for a partial batch to fill.
+// A batch goes through one session and is committed once: the publisher sends through a template
+// of its own with transacted sessions, leaving the application's shared JmsTemplate as it is.
+// A batch that fails to send is kept and sent again every RETRY_MILLIS; while a full batch is
+// waiting the sender takes no more events, so the ring fills up and blocks publishers until the
+// broker is back. Once the publisher is stopping, a failed batch gets one more try and is then
+// logged as lost. Events may be published before the sender starts, but only as many as the ring
+// holds: with nobody to drain it, publishing into a full ring fails instead of waiting forever.
 @Component
-public class EventPublisher {
+public class EventPublisher implements SmartLifecycle {
+    private static final class EventSlot {
+        private Event event;
+    }
+
+    private static final long RETRY_MILLIS = 100;
+    private static final long CLAIM_PARK_NANOS = 1_000;
+
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final JmsTemplate jmsTemplate;
     @Value("${responseQueue}")
     private String responseQueue;
+    private final boolean async;
+    private final RingBuffer<EventSlot> ring;
+    private final RingProcessor<EventSlot> sender;
+    private final Event[] batch;
+    private final long lingerNanos;
+    private int batchSize;
+    private long batchStart;
+    private boolean failed;
+    private long retryAt;
 
-    public EventPublisher(JmsTemplate jmsTemplate) {
+    @Autowired
+    public EventPublisher(ConnectionFactory connectionFactory, MessageConverter jmsMessageConverter,
+                          @Value("${asyncEventPublishing:false}") boolean async,
+                          @Value("${eventRingSize:4096}") int ringSize,
+                          @Value("${eventBatchSize:64}") int maxBatchSize,
+                          @Value("${eventLingerMicros:200}") long lingerMicros) {
+        this(transactedTemplate(connectionFactory, jmsMessageConverter), async, ringSize, maxBatchSize, lingerMicros);
+    }
+
+    public EventPublisher(JmsTemplate jmsTemplate, boolean async, int ringSize, int maxBatchSize, long lingerMicros) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Event batch size must be positive");
         this.jmsTemplate = jmsTemplate;
+        this.async = async;
+        this.ring = async ? new RingBuffer<>(ringSize, EventSlot::new) : null;
+        this.sender = async ? new RingProcessor<>(ring, new BatchSender()) : null;
+        this.batch = new Event[maxBatchSize];
+        this.lingerNanos = lingerMicros * 1_000;
+    }
+
+    private static JmsTemplate transactedTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
+        JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+        jmsTemplate.setMessageConverter(messageConverter);
+        jmsTemplate.setSessionTransacted(true);
+        return jmsTemplate;
     }
 
     public void publish(Event event) {
-        log.info("Published : " + event);
-        jmsTemplate.convertAndSend(responseQueue, event);
+        if (!async) {
+            log.info("Published : " + event);
+            jmsTemplate.convertAndSend(responseQueue, event);
+            return;
+        }
+        long sequence;
+        while ((sequence = ring.tryClaim()) < 0) {
+            if (!sender.isRunning())
+                throw new IllegalStateException("Event ring is full and its sender is not running");
+            LockSupport.parkNanos(CLAIM_PARK_NANOS);
+        }
+        ring.get(sequence).event = event;
+        ring.publish(sequence);
+    }
+
+    private class BatchSender implements RingProcessor.Handler<EventSlot> {
+        @Override
+        public void onSlot(EventSlot slot, boolean endOfBatch) {
+            while (batchSize == batch.length && !sendBatch()) {
+                if (sender.isRunning())
+                    LockSupport.parkNanos(retryAt - System.nanoTime());
+                else
+                    sendOrDropBatch();
+            }
+            if (batchSize == 0)
+                batchStart = System.nanoTime();
+            batch[batchSize++] = slot.event;
+            slot.event = null;
+            if (batchSize == batch.length || (endOfBatch && lingerExpired()))
+                sendBatch();
+        }
+
+        @Override
+        public void onIdle() {
+            if (batchSize > 0 && lingerExpired())
+                sendBatch();
+        }
+
+        @Override
+        public void onShutdown() {
+            sendOrDropBatch();
+        }
+
+        private boolean lingerExpired() {
+            return System.nanoTime() - batchStart >= lingerNanos;
+        }
+    }
+
+    private boolean sendBatch() {
+        if (batchSize == 0)
+            return true;
+        if (failed && System.nanoTime() - retryAt < 0)
+            return false;
+        try {
+            jmsTemplate.execute(this::sendBatch, true);
+        } catch (RuntimeException ex) {
+            failed = true;
+            retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS);
+            log.log(Level.SEVERE, "Sending a batch of " + batchSize + " events failed, retrying in " + RETRY_MILLIS + "ms", ex);
+            return false;
+        }
+        clearBatch();
+        return true;
+    }
+
+    private void sendOrDropBatch() {
+        failed = false;
+        if (sendBatch())
+            return;
+        log.severe("Dropping " + batchSize + " events that could not be sent");
+        clearBatch();
+    }
+
+    private void clearBatch() {
+        Arrays.fill(batch, 0, batchSize, null);
+        batchSize = 0;
+        failed = false;
+    }
+
+    private Void sendBatch(Session session) throws JMSException {
+        Destination destination = jmsTemplate.getDestinationResolver().resolveDestinationName(session, responseQueue, false);
+        MessageProducer producer = session.createProducer(destination);
+        try {
+            for (int i = 0; i < batchSize; i++) {
+                log.info("Published : " + batch[i]);
+                producer.send(jmsTemplate.getMessageConverter().toMessage(batch[i], session));
+            }
+            if (session.getTransacted())
+                session.commit();
+        } finally {
+            producer.close();
+        }
+        return null;
+    }
+
+    @Override
+    public void start() {
+        if (async)
+            sender.start("event-publisher");
+    }
+
+    @Override
+    public void stop() {
+        if (!async)
+            return;
+        try {
+            if (!sender.halt(10_000))
+                log.warning("Event publisher did not drain in time");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return async && sender.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2;
     }
 }
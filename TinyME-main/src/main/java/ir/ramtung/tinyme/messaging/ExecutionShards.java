@@ -0,0 +1,186 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.CreditDecisions;
+import ir.ramtung.tinyme.journal.JournaledCreditLedger;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.util.RingBuffer;
+import ir.ramtung.tinyme.util.RingProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+// Each security is handled by exactly one shard, so a security's order book and stop orders are
+// only ever touched by one thread and its requests run in arrival order. Listener threads only
+// place the decoded request in the shard's ring; the shard's business thread does the matching.
+// Requests are journaled and placed in the rings under one lock, so the journal order is the order
+// in which the shards see them, and quiesce() can stop all shards at a known journal position.
+// The ISIN is resolved to its security once here; shards are chosen by the dense security id and
+// the shard thread hands the resolved security to OrderHandler. Brokers are shared by the shards,
+// so when the journal is on, each shard has the credit ledger record the credit decisions of a
+// request and journals them right after handling it, keyed by the request's journal position,
+// for the replay to repeat.
+@Component
+public class ExecutionShards implements SmartLifecycle {
+    private static final class RequestSlot {
+        private RequestType type;
+        private Object request;
+        private Security security;
+        private long journalPosition;
+    }
+
+    private static final class Barrier {
+        private final CountDownLatch arrived;
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private Barrier(int parties) {
+            arrived = new CountDownLatch(parties);
+        }
+    }
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final OrderHandler orderHandler;
+    private final RequestJournal requestJournal;
+    private final JournaledCreditLedger creditLedger;
+    private final SecurityRepository securityRepository;
+    private final Object sequencing = new Object();
+    private final RingBuffer<RequestSlot>[] rings;
+    private final RingProcessor<RequestSlot>[] processors;
+
+    @SuppressWarnings("unchecked")
+    public ExecutionShards(OrderHandler orderHandler, RequestJournal requestJournal, JournaledCreditLedger creditLedger,
+                           SecurityRepository securityRepository,
+                           @Value("${executionShards:1}") int shardCount,
+                           @Value("${requestRingSize:1024}") int ringSize) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("At least one execution shard is required");
+        this.orderHandler = orderHandler;
+        this.requestJournal = requestJournal;
+        this.creditLedger = creditLedger;
+        this.securityRepository = securityRepository;
+        rings = new RingBuffer[shardCount];
+        processors = new RingProcessor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            rings[i] = new RingBuffer<>(ringSize, RequestSlot::new);
+            CreditDecisions decisions = new CreditDecisions();
+            processors[i] = new RingProcessor<>(rings[i], (slot, endOfBatch) -> handle(slot, decisions));
+        }
+    }
+
+    public int shardCount() {
+        return rings.length;
+    }
+
+    public int shardOf(String securityIsin) {
+        return shardOf(securityIsin, securityRepository.findSecurityByIsin(securityIsin));
+    }
+
+    private int shardOf(String securityIsin, Security security) {
+        if (security != null)
+            return security.getId() % rings.length;
+        return Math.floorMod(Objects.hashCode(securityIsin), rings.length);
+    }
+
+    public void publish(RequestType type, Object request) {
+        String securityIsin = type.securityIsinOf(request);
+        Security security = securityRepository.findSecurityByIsin(securityIsin);
+        synchronized (sequencing) {
+            long journalPosition = requestJournal.append(request);
+            place(rings[shardOf(securityIsin, security)], type, request, security, journalPosition);
+        }
+    }
+
+    public void quiesce(Runnable action) throws InterruptedException {
+        synchronized (sequencing) {
+            Barrier barrier = new Barrier(rings.length);
+            for (RingBuffer<RequestSlot> ring : rings)
+                place(ring, null, barrier, null, -1);
+            try {
+                barrier.arrived.await();
+                action.run();
+            } finally {
+                barrier.released.countDown();
+            }
+        }
+    }
+
+    private static void place(RingBuffer<RequestSlot> ring, RequestType type, Object request, Security security, long journalPosition) {
+        long sequence = ring.claim();
+        RequestSlot slot = ring.get(sequence);
+        slot.type = type;
+        slot.request = request;
+        slot.security = security;
+        slot.journalPosition = journalPosition;
+        ring.publish(sequence);
+    }
+
+    private void handle(RequestSlot slot, CreditDecisions decisions) {
+        RequestType type = slot.type;
+        Object request = slot.request;
+        Security security = slot.security;
+        long journalPosition = slot.journalPosition;
+        slot.type = null;
+        slot.request = null;
+        slot.security = null;
+        if (type == null)
+            awaitRelease((Barrier) request);
+        else if (journalPosition < 0)
+            type.handle(orderHandler, request, security);
+        else
+            handleRecordingCredit(type, request, security, journalPosition, decisions);
+    }
+
+    private void handleRecordingCredit(RequestType type, Object request, Security security, long journalPosition, CreditDecisions decisions) {
+        decisions.recordFor(journalPosition);
+        creditLedger.use(decisions);
+        try {
+            type.handle(orderHandler, request, security);
+        } finally {
+            creditLedger.use(null);
+            if (decisions.getCount() > 0)
+                requestJournal.append(decisions);
+        }
+    }
+
+    private static void awaitRelease(Barrier barrier) {
+        barrier.arrived.countDown();
+        try {
+            barrier.released.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void start() {
+        for (int i = 0; i < processors.length; i++)
+            processors[i].start("shard-" + i);
+    }
+
+    @Override
+    public void stop() {
+        try {
+            for (RingProcessor<RequestSlot> processor : processors)
+                if (!processor.halt(10_000))
+                    log.warning("Execution shard did not drain in time");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return processors[0].isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+}
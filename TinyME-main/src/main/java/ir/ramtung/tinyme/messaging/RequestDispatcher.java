@@ -1,38 +1,37 @@
 package ir.ramtung.tinyme.messaging;
 
-import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
-import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
-import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
-import ir.ramtung.tinyme.domain.service.OrderHandler;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.stereotype.Component;
 
 import java.util.logging.Logger;
 
+// One consumer reads every request in arrival order, so a delete can never overtake the enter it
+// refers to. The type header is mapped once to a RequestType, which routes the request to its shard.
 @Component
+@ConditionalOnProperty(name = "requestDispatch", havingValue = "typed", matchIfMissing = true)
 public class RequestDispatcher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
-    private final OrderHandler orderHandler;
+    private final MessageConverter messageConverter;
+    private final ExecutionShards executionShards;
 
-    public RequestDispatcher(OrderHandler orderHandler) {
-        this.orderHandler = orderHandler;
+    public RequestDispatcher(MessageConverter messageConverter, ExecutionShards executionShards) {
+        this.messageConverter = messageConverter;
+        this.executionShards = executionShards;
     }
 
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
-    public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
-        log.info("Received message: " + enterOrderRq);
-        orderHandler.handleEnterOrder(enterOrderRq);
-    }
-
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
-    public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
-        log.info("Received message: " + deleteOrderRq);
-        orderHandler.handleDeleteOrder(deleteOrderRq);
-    }
-
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq'")
-    public void receiveChangeMatchingStateRq(ChangeMatchingStateRq changeMatchingStateRq) {
-        log.info("Received message: " + changeMatchingStateRq);
-        orderHandler.handleChangeMatchingState(changeMatchingStateRq);
+    @JmsListener(destination = "${requestQueue}")
+    public void receive(Message message) throws JMSException {
+        RequestType type = RequestType.ofTypeId(message.getStringProperty(MessagingConfig.TYPE_ID_PROPERTY));
+        if (type == null) {
+            log.warning("Dropped message of unknown type: " + message.getStringProperty(MessagingConfig.TYPE_ID_PROPERTY));
+            return;
+        }
+        Object request = messageConverter.fromMessage(message);
+        log.info("Received message: " + request);
+        executionShards.publish(type, request);
     }
 }
@@ -0,0 +1,88 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public enum RequestType {
+    ENTER_ORDER(EnterOrderRq.class) {
+        @Override
+        public String securityIsinOf(Object request) {
+            return ((EnterOrderRq) request).getSecurityIsin();
+        }
+
+        @Override
+        public void handle(OrderHandler orderHandler, Object request) {
+            orderHandler.handleEnterOrder((EnterOrderRq) request);
+        }
+
+        @Override
+        public void handle(OrderHandler orderHandler, Object request, Security security) {
+            orderHandler.handleEnterOrder((EnterOrderRq) request, security);
+        }
+    },
+    DELETE_ORDER(DeleteOrderRq.class) {
+        @Override
+        public String securityIsinOf(Object request) {
+            return ((DeleteOrderRq) request).getSecurityIsin();
+        }
+
+        @Override
+        public void handle(OrderHandler orderHandler, Object request) {
+            orderHandler.handleDeleteOrder((DeleteOrderRq) request);
+        }
+
+        @Override
+        public void handle(OrderHandler orderHandler, Object request, Security security) {
+            orderHandler.handleDeleteOrder((DeleteOrderRq) request, security);
+        }
+    },
+    CHANGE_MATCHING_STATE(ChangeMatchingStateRq.class) {
+        @Override
+        public String securityIsinOf(Object request) {
+            return ((ChangeMatchingStateRq) request).getSecurityIsin();
+        }
+
+        @Override
+        public void handle(OrderHandler orderHandler, Object request) {
+            orderHandler.handleChangeMatchingState((ChangeMatchingStateRq) request);
+        }
+
+        @Override
+        public void handle(OrderHandler orderHandler, Object request, Security security) {
+            orderHandler.handleChangeMatchingState((ChangeMatchingStateRq) request, security);
+        }
+    };
+
+    private static final Map<String, RequestType> typeById = new HashMap<>();
+
+    static {
+        for (RequestType type : values())
+            typeById.put(type.requestClass.getName(), type);
+    }
+
+    private final Class<?> requestClass;
+
+    RequestType(Class<?> requestClass) {
+        this.requestClass = requestClass;
+    }
+
+    public static RequestType ofTypeId(String typeId) {
+        return typeId == null ? null : typeById.get(typeId);
+    }
+
+    public static RequestType of(Object request) {
+        return request == null ? null : typeById.get(request.getClass().getName());
+    }
+
+    public abstract String securityIsinOf(Object request);
+
+    public abstract void handle(OrderHandler orderHandler, Object request);
+
+    public abstract void handle(OrderHandler orderHandler, Object request, Security security);
+}
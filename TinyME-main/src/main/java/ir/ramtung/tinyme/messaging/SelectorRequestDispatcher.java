@@ -0,0 +1,39 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Logger;
+
+@Component
+@ConditionalOnProperty(name = "requestDispatch", havingValue = "selector")
+public class SelectorRequestDispatcher {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ExecutionShards executionShards;
+
+    public SelectorRequestDispatcher(ExecutionShards executionShards) {
+        this.executionShards = executionShards;
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
+    public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
+        log.info("Received message: " + enterOrderRq);
+        executionShards.publish(RequestType.ENTER_ORDER, enterOrderRq);
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
+    public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
+        log.info("Received message: " + deleteOrderRq);
+        executionShards.publish(RequestType.DELETE_ORDER, deleteOrderRq);
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq'")
+    public void receiveChangeMatchingStateRq(ChangeMatchingStateRq changeMatchingStateRq) {
+        log.info("Received message: " + changeMatchingStateRq);
+        executionShards.publish(RequestType.CHANGE_MATCHING_STATE, changeMatchingStateRq);
+    }
+}
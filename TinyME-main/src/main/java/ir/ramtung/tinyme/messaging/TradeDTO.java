@@ -1,6 +1,7 @@
 package ir.ramtung.tinyme.messaging;
 
 import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
 
 public record TradeDTO(
     String securityIsin,
@@ -12,4 +13,8 @@ public record TradeDTO(
     public TradeDTO(Trade trade) {
         this(trade.getSecurity().getIsin(), trade.getPrice(), trade.getQuantity(), trade.getBuy().getOrderId(), trade.getSell().getOrderId());
     }
+
+    public TradeDTO(TradeBuffer trades, int trade) {
+        this(trades.getBuy(trade).getSecurity().getIsin(), trades.getPrice(trade), trades.getQuantity(trade), trades.getBuyOrderId(trade), trades.getSellOrderId(trade));
+    }
 }
@@ -0,0 +1,366 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.journal.CreditDecisions;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fixed-layout little-endian encoding in the style of SBE. A message is an 8 byte header
+// (template id, schema version, block length) followed by the fixed-size block of the template
+// and then its variable-length data: strings as a length-prefixed UTF-8 run and lists as a
+// repeating group of count, entry block length and entries. Decoders skip block bytes they do
+// not know, so fields can be appended to a block without breaking older readers.
+public class BinaryCodec {
+    public static final short SCHEMA_VERSION = 1;
+    static final int HEADER_LENGTH = 8;
+
+    static final short ENTER_ORDER_RQ = 1;
+    static final short DELETE_ORDER_RQ = 2;
+    static final short CHANGE_MATCHING_STATE_RQ = 3;
+    static final short CREDIT_DECISIONS = 4;
+    static final short ORDER_ACCEPTED_EVENT = 10;
+    static final short ORDER_ACTIVATED_EVENT = 11;
+    static final short ORDER_DELETED_EVENT = 12;
+    static final short ORDER_UPDATED_EVENT = 13;
+    static final short ORDER_REJECTED_EVENT = 14;
+    static final short ORDER_EXECUTED_EVENT = 15;
+    static final short OPENING_PRICE_EVENT = 16;
+    static final short TRADE_EVENT = 17;
+    static final short SECURITY_STATE_CHANGED_EVENT = 18;
+
+    private static final int ENTER_ORDER_RQ_BLOCK = 2 + 8 + 8 + 12 + 4 * 5 + 8 + 8;
+    private static final int DELETE_ORDER_RQ_BLOCK = 1 + 8 + 8 + 12;
+    private static final int CHANGE_MATCHING_STATE_RQ_BLOCK = 1;
+    private static final int CREDIT_DECISIONS_BLOCK = 8 + 4;
+    private static final int EVENT_BLOCK = 12;
+    private static final int ORDER_EVENT_BLOCK = EVENT_BLOCK + 8 + 8;
+    private static final int OPENING_PRICE_EVENT_BLOCK = EVENT_BLOCK + 4 + 4;
+    private static final int TRADE_EVENT_BLOCK = EVENT_BLOCK + 4 + 4 + 8 + 8;
+    private static final int SECURITY_STATE_CHANGED_EVENT_BLOCK = EVENT_BLOCK + 1;
+    private static final int TRADE_ENTRY_BLOCK = 4 + 4 + 8 + 8;
+    private static final int ERROR_ENTRY_BLOCK = 0;
+
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final byte NULL_ENUM = -1;
+    private static final short NULL_STRING = -1;
+
+    public void encode(Object message, ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (message instanceof EnterOrderRq rq) {
+            header(buffer, ENTER_ORDER_RQ, ENTER_ORDER_RQ_BLOCK);
+            putEnum(buffer, rq.getRequestType());
+            putEnum(buffer, rq.getSide());
+            buffer.putLong(rq.getRequestId());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+            buffer.putInt(rq.getQuantity());
+            buffer.putInt(rq.getPrice());
+            buffer.putInt(rq.getPeakSize());
+            buffer.putInt(rq.getMinimumExecutionQuantity());
+            buffer.putInt(rq.getStopPrice());
+            buffer.putLong(rq.getBrokerId());
+            buffer.putLong(rq.getShareholderId());
+            putString(buffer, rq.getSecurityIsin());
+        } else if (message instanceof DeleteOrderRq rq) {
+            header(buffer, DELETE_ORDER_RQ, DELETE_ORDER_RQ_BLOCK);
+            putEnum(buffer, rq.getSide());
+            buffer.putLong(rq.getRequestId());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+            putString(buffer, rq.getSecurityIsin());
+        } else if (message instanceof ChangeMatchingStateRq rq) {
+            header(buffer, CHANGE_MATCHING_STATE_RQ, CHANGE_MATCHING_STATE_RQ_BLOCK);
+            putEnum(buffer, rq.getTargetState());
+            putString(buffer, rq.getSecurityIsin());
+        } else if (message instanceof CreditDecisions decisions) {
+            header(buffer, CREDIT_DECISIONS, CREDIT_DECISIONS_BLOCK);
+            buffer.putLong(decisions.getRequestPosition());
+            buffer.putInt(decisions.getCount());
+            for (long outcomes : decisions.getOutcomes())
+                buffer.putLong(outcomes);
+        } else if (message instanceof OrderAcceptedEvent event) {
+            orderEvent(buffer, ORDER_ACCEPTED_EVENT, event, event.getRequestId(), event.getOrderId());
+        } else if (message instanceof OrderActivatedEvent event) {
+            orderEvent(buffer, ORDER_ACTIVATED_EVENT, event, event.getRequestId(), event.getOrderId());
+        } else if (message instanceof OrderDeletedEvent event) {
+            orderEvent(buffer, ORDER_DELETED_EVENT, event, event.getRequestId(), event.getOrderId());
+        } else if (message instanceof OrderUpdatedEvent event) {
+            orderEvent(buffer, ORDER_UPDATED_EVENT, event, event.getRequestId(), event.getOrderId());
+        } else if (message instanceof OrderRejectedEvent event) {
+            orderEvent(buffer, ORDER_REJECTED_EVENT, event, event.getRequestId(), event.getOrderId());
+            List<String> errors = event.getErrors();
+            groupHeader(buffer, errors, ERROR_ENTRY_BLOCK);
+            if (errors != null)
+                for (String error : errors)
+                    putString(buffer, error);
+        } else if (message instanceof OrderExecutedEvent event) {
+            orderEvent(buffer, ORDER_EXECUTED_EVENT, event, event.getRequestId(), event.getOrderId());
+            List<TradeDTO> trades = event.getTrades();
+            groupHeader(buffer, trades, TRADE_ENTRY_BLOCK);
+            if (trades != null) {
+                for (TradeDTO trade : trades) {
+                    buffer.putInt(trade.price());
+                    buffer.putInt(trade.quantity());
+                    buffer.putLong(trade.buyOrderId());
+                    buffer.putLong(trade.sellOrderId());
+                    putString(buffer, trade.securityIsin());
+                }
+            }
+        } else if (message instanceof OpeningPriceEvent event) {
+            header(buffer, OPENING_PRICE_EVENT, OPENING_PRICE_EVENT_BLOCK);
+            putTime(buffer, event.getTime());
+            buffer.putInt(event.getOpeningPrice());
+            buffer.putInt(event.getTradableQuantity());
+            putString(buffer, event.getSecurityIsin());
+        } else if (message instanceof TradeEvent event) {
+            header(buffer, TRADE_EVENT, TRADE_EVENT_BLOCK);
+            putTime(buffer, event.getTime());
+            buffer.putInt(event.getPrice());
+            buffer.putInt(event.getQuantity());
+            buffer.putLong(event.getBuyId());
+            buffer.putLong(event.getSellId());
+            putString(buffer, event.getSecurityIsin());
+        } else if (message instanceof SecurityStateChangedEvent event) {
+            header(buffer, SECURITY_STATE_CHANGED_EVENT, SECURITY_STATE_CHANGED_EVENT_BLOCK);
+            putTime(buffer, event.getTime());
+            putEnum(buffer, event.getState());
+            putString(buffer, event.getSecurityIsin());
+        } else {
+            throw new IllegalArgumentException("No binary template for " + (message == null ? null : message.getClass().getName()));
+        }
+    }
+
+    public Object decode(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            short templateId = buffer.getShort();
+            short schemaVersion = buffer.getShort();
+            if (schemaVersion > SCHEMA_VERSION)
+                throw new IllegalArgumentException("Unsupported schema version " + schemaVersion);
+            int blockLength = buffer.getInt();
+            int blockEnd = buffer.position() + blockLength;
+            return switch (templateId) {
+                case ENTER_ORDER_RQ -> decodeEnterOrderRq(buffer, blockEnd);
+                case DELETE_ORDER_RQ -> decodeDeleteOrderRq(buffer, blockEnd);
+                case CHANGE_MATCHING_STATE_RQ -> decodeChangeMatchingStateRq(buffer, blockEnd);
+                case CREDIT_DECISIONS -> decodeCreditDecisions(buffer, blockEnd);
+                case ORDER_ACCEPTED_EVENT, ORDER_ACTIVATED_EVENT, ORDER_DELETED_EVENT, ORDER_UPDATED_EVENT,
+                        ORDER_REJECTED_EVENT, ORDER_EXECUTED_EVENT -> decodeOrderEvent(templateId, buffer, blockEnd);
+                case OPENING_PRICE_EVENT -> decodeOpeningPriceEvent(buffer, blockEnd);
+                case TRADE_EVENT -> decodeTradeEvent(buffer, blockEnd);
+                case SECURITY_STATE_CHANGED_EVENT -> decodeSecurityStateChangedEvent(buffer, blockEnd);
+                default -> throw new IllegalArgumentException("Unknown binary template " + templateId);
+            };
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated binary message", ex);
+        }
+    }
+
+    private EnterOrderRq decodeEnterOrderRq(ByteBuffer buffer, int blockEnd) {
+        EnterOrderRq rq = new EnterOrderRq();
+        rq.setRequestType(getEnum(buffer, OrderEntryType.values()));
+        rq.setSide(getEnum(buffer, Side.values()));
+        rq.setRequestId(buffer.getLong());
+        rq.setOrderId(buffer.getLong());
+        rq.setEntryTime(getTime(buffer));
+        rq.setQuantity(buffer.getInt());
+        rq.setPrice(buffer.getInt());
+        rq.setPeakSize(buffer.getInt());
+        rq.setMinimumExecutionQuantity(buffer.getInt());
+        rq.setStopPrice(buffer.getInt());
+        rq.setBrokerId(buffer.getLong());
+        rq.setShareholderId(buffer.getLong());
+        buffer.position(blockEnd);
+        rq.setSecurityIsin(getString(buffer));
+        return rq;
+    }
+
+    private DeleteOrderRq decodeDeleteOrderRq(ByteBuffer buffer, int blockEnd) {
+        DeleteOrderRq rq = new DeleteOrderRq();
+        rq.setSide(getEnum(buffer, Side.values()));
+        rq.setRequestId(buffer.getLong());
+        rq.setOrderId(buffer.getLong());
+        rq.setEntryTime(getTime(buffer));
+        buffer.position(blockEnd);
+        rq.setSecurityIsin(getString(buffer));
+        return rq;
+    }
+
+    private ChangeMatchingStateRq decodeChangeMatchingStateRq(ByteBuffer buffer, int blockEnd) {
+        ChangeMatchingStateRq rq = new ChangeMatchingStateRq();
+        rq.setTargetState(getEnum(buffer, MatchingState.values()));
+        buffer.position(blockEnd);
+        rq.setSecurityIsin(getString(buffer));
+        return rq;
+    }
+
+    private CreditDecisions decodeCreditDecisions(ByteBuffer buffer, int blockEnd) {
+        long requestPosition = buffer.getLong();
+        int count = buffer.getInt();
+        buffer.position(blockEnd);
+        if (count < 0 || (long) CreditDecisions.wordsFor(count) * Long.BYTES > buffer.remaining())
+            throw new IllegalArgumentException("Bad credit decision count " + count);
+        long[] outcomes = new long[CreditDecisions.wordsFor(count)];
+        for (int i = 0; i < outcomes.length; i++)
+            outcomes[i] = buffer.getLong();
+        return new CreditDecisions(requestPosition, count, outcomes);
+    }
+
+    private Event decodeOrderEvent(short templateId, ByteBuffer buffer, int blockEnd) {
+        LocalDateTime time = getTime(buffer);
+        long requestId = buffer.getLong();
+        long orderId = buffer.getLong();
+        buffer.position(blockEnd);
+        return switch (templateId) {
+            case ORDER_ACCEPTED_EVENT -> new OrderAcceptedEvent(time, requestId, orderId);
+            case ORDER_ACTIVATED_EVENT -> new OrderActivatedEvent(time, requestId, orderId);
+            case ORDER_DELETED_EVENT -> new OrderDeletedEvent(time, requestId, orderId);
+            case ORDER_UPDATED_EVENT -> new OrderUpdatedEvent(time, requestId, orderId);
+            case ORDER_REJECTED_EVENT -> new OrderRejectedEvent(time, requestId, orderId, decodeErrors(buffer));
+            default -> new OrderExecutedEvent(time, requestId, orderId, decodeTrades(buffer));
+        };
+    }
+
+    private List<String> decodeErrors(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        int entryBlock = buffer.getShort();
+        if (count < 0)
+            return null;
+        List<String> errors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buffer.position(buffer.position() + entryBlock);
+            errors.add(getString(buffer));
+        }
+        return errors;
+    }
+
+    private List<TradeDTO> decodeTrades(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        int entryBlock = buffer.getShort();
+        if (count < 0)
+            return null;
+        List<TradeDTO> trades = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int entryEnd = buffer.position() + entryBlock;
+            int price = buffer.getInt();
+            int quantity = buffer.getInt();
+            long buyOrderId = buffer.getLong();
+            long sellOrderId = buffer.getLong();
+            buffer.position(entryEnd);
+            trades.add(new TradeDTO(getString(buffer), price, quantity, buyOrderId, sellOrderId));
+        }
+        return trades;
+    }
+
+    private OpeningPriceEvent decodeOpeningPriceEvent(ByteBuffer buffer, int blockEnd) {
+        LocalDateTime time = getTime(buffer);
+        int openingPrice = buffer.getInt();
+        int tradableQuantity = buffer.getInt();
+        buffer.position(blockEnd);
+        return new OpeningPriceEvent(time, getString(buffer), openingPrice, tradableQuantity);
+    }
+
+    private TradeEvent decodeTradeEvent(ByteBuffer buffer, int blockEnd) {
+        LocalDateTime time = getTime(buffer);
+        int price = buffer.getInt();
+        int quantity = buffer.getInt();
+        long buyId = buffer.getLong();
+        long sellId = buffer.getLong();
+        buffer.position(blockEnd);
+        return new TradeEvent(time, getString(buffer), price, quantity, buyId, sellId);
+    }
+
+    private SecurityStateChangedEvent decodeSecurityStateChangedEvent(ByteBuffer buffer, int blockEnd) {
+        LocalDateTime time = getTime(buffer);
+        MatchingState state = getEnum(buffer, MatchingState.values());
+        buffer.position(blockEnd);
+        return new SecurityStateChangedEvent(time, getString(buffer), state);
+    }
+
+    private void header(ByteBuffer buffer, short templateId, int blockLength) {
+        buffer.putShort(templateId);
+        buffer.putShort(SCHEMA_VERSION);
+        buffer.putInt(blockLength);
+    }
+
+    private void orderEvent(ByteBuffer buffer, short templateId, Event event, long requestId, long orderId) {
+        header(buffer, templateId, ORDER_EVENT_BLOCK);
+        putTime(buffer, event.getTime());
+        buffer.putLong(requestId);
+        buffer.putLong(orderId);
+    }
+
+    private void groupHeader(ByteBuffer buffer, List<?> entries, int entryBlock) {
+        buffer.putInt(entries == null ? -1 : entries.size());
+        buffer.putShort((short) entryBlock);
+    }
+
+    private void putEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.put(value == null ? NULL_ENUM : (byte) value.ordinal());
+    }
+
+    private <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+        byte ordinal = buffer.get();
+        if (ordinal == NULL_ENUM)
+            return null;
+        if (ordinal < 0 || ordinal >= values.length)
+            throw new IllegalArgumentException("Bad " + values.getClass().getComponentType().getSimpleName() + " ordinal " + ordinal);
+        return values[ordinal];
+    }
+
+    private void putTime(ByteBuffer buffer, LocalDateTime time) {
+        if (time == null) {
+            buffer.putLong(NULL_TIME);
+            buffer.putInt(0);
+        } else {
+            buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(time.getNano());
+        }
+    }
+
+    private LocalDateTime getTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == NULL_TIME ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("String too long for binary encoding");
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length == NULL_STRING)
+            return null;
+        if (!buffer.hasArray()) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,70 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+// Carries BinaryCodec frames in BytesMessages. The _type property is still set, so consumers
+// that select on it work the same as with the JSON converter.
+public class BinaryMessageConverter implements MessageConverter {
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private final BinaryCodec codec = new BinaryCodec();
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+    private final String typeIdPropertyName;
+
+    public BinaryMessageConverter(String typeIdPropertyName) {
+        this.typeIdPropertyName = typeIdPropertyName;
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException {
+        ByteBuffer buffer = encode(object);
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(buffer.array(), 0, buffer.position());
+        message.setStringProperty(typeIdPropertyName, object.getClass().getName());
+        return message;
+    }
+
+    private ByteBuffer encode(Object object) {
+        ByteBuffer buffer = buffers.get();
+        while (true) {
+            buffer.clear();
+            try {
+                codec.encode(object, buffer);
+                return buffer;
+            } catch (BufferOverflowException ex) {
+                buffer = ByteBuffer.allocate(buffer.capacity() << 1);
+                buffers.set(buffer);
+            } catch (IllegalArgumentException ex) {
+                throw new MessageConversionException("Cannot encode " + object, ex);
+            }
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        if (!(message instanceof BytesMessage bytesMessage))
+            throw new MessageConversionException("Expected a BytesMessage but received " + message.getClass().getName());
+        int length = (int) bytesMessage.getBodyLength();
+        ByteBuffer buffer = buffers.get();
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(length) << 1);
+            buffers.set(buffer);
+        }
+        buffer.clear();
+        bytesMessage.readBytes(buffer.array(), length);
+        buffer.limit(length);
+        try {
+            return codec.decode(buffer);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            throw new MessageConversionException("Cannot decode binary message", ex);
+        }
+    }
+}
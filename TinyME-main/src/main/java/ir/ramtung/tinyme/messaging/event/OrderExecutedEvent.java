@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -16,4 +17,11 @@ public class OrderExecutedEvent extends Event {
     private long requestId;
     private long orderId;
     private List<TradeDTO> trades;
+
+    public OrderExecutedEvent(LocalDateTime time, long requestId, long orderId, List<TradeDTO> trades) {
+        super(time);
+        this.requestId = requestId;
+        this.orderId = orderId;
+        this.trades = trades;
+    }
 }
@@ -6,6 +6,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
@@ -13,4 +15,10 @@ import lombok.NoArgsConstructor;
 public class SecurityStateChangedEvent extends Event {
     private String securityIsin;
     private MatchingState state;
+
+    public SecurityStateChangedEvent(LocalDateTime time, String securityIsin, MatchingState state) {
+        super(time);
+        this.securityIsin = securityIsin;
+        this.state = state;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package ir.ramtung.tinyme.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+// Reads comma separated rows straight from a (mapped) byte buffer. Numbers and times are parsed in
+// place, and a string field equal to the previous string field is returned as the same instance,
+// so repeated values such as the ISIN column cost no allocation. Fields are not quoted.
+final class CsvCursor {
+    private final ByteBuffer buffer;
+    private final int end;
+    private int position;
+    private byte[] lastBytes = new byte[0];
+    private String lastString = "";
+
+    CsvCursor(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.end = buffer.limit();
+    }
+
+    void skipLine() {
+        while (position < end && buffer.get(position++) != '\n') ;
+    }
+
+    boolean hasRow() {
+        while (position < end && isLineEnd(buffer.get(position)))
+            position++;
+        return position < end;
+    }
+
+    long nextLong() {
+        boolean negative = position < end && buffer.get(position) == '-';
+        if (negative)
+            position++;
+        long value = 0;
+        byte b;
+        while (position < end && (b = buffer.get(position)) >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            position++;
+        }
+        endField();
+        return negative ? -value : value;
+    }
+
+    int nextInt() {
+        return Math.toIntExact(nextLong());
+    }
+
+    String nextString() {
+        int start = position;
+        while (position < end && !isFieldEnd(buffer.get(position)))
+            position++;
+        int length = position - start;
+        endField();
+        if (!sameAsLast(start, length)) {
+            lastBytes = new byte[length];
+            buffer.get(start, lastBytes);
+            lastString = new String(lastBytes, StandardCharsets.UTF_8);
+        }
+        return lastString;
+    }
+
+    byte nextFirstByte() {
+        byte first = buffer.get(position);
+        while (position < end && !isFieldEnd(buffer.get(position)))
+            position++;
+        endField();
+        return first;
+    }
+
+    // ISO-8601 local date-time as written by LocalDateTime.toString: seconds and fraction are optional.
+    LocalDateTime nextDateTime() {
+        int year = digits(4);
+        position++;
+        int month = digits(2);
+        position++;
+        int day = digits(2);
+        position++;
+        int hour = digits(2);
+        position++;
+        int minute = digits(2);
+        int second = 0;
+        int nano = 0;
+        if (position < end && buffer.get(position) == ':') {
+            position++;
+            second = digits(2);
+            if (position < end && buffer.get(position) == '.') {
+                position++;
+                int scale = 100_000_000;
+                byte b;
+                while (position < end && (b = buffer.get(position)) >= '0' && b <= '9') {
+                    nano += (b - '0') * scale;
+                    scale /= 10;
+                    position++;
+                }
+            }
+        }
+        endField();
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private int digits(int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++)
+            value = value * 10 + (buffer.get(position++) - '0');
+        return value;
+    }
+
+    private boolean sameAsLast(int start, int length) {
+        if (length != lastBytes.length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (buffer.get(start + i) != lastBytes[i])
+                return false;
+        return true;
+    }
+
+    private void endField() {
+        while (position < end && !isFieldEnd(buffer.get(position)))
+            position++;
+        if (position < end && buffer.get(position) == ',')
+            position++;
+    }
+
+    private static boolean isFieldEnd(byte b) {
+        return b == ',' || isLineEnd(b);
+    }
+
+    private static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+}
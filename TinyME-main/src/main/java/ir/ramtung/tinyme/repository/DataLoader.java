@@ -1,8 +1,8 @@
 package ir.ramtung.tinyme.repository;
 
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.JournalPosition;
+import ir.ramtung.tinyme.journal.RequestJournal;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,14 +10,15 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
-import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.StringJoiner;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 @Component
@@ -27,11 +28,16 @@ public class DataLoader {
     private final BrokerRepository brokerRepository;
     private final ShareholderRepository shareholderRepository;
     private final SecurityRepository securityRepository;
+    private final RequestJournal requestJournal;
+    private final SnapshotStore snapshotStore;
+    private JournalPosition journalPosition = JournalPosition.START;
 
-    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository) {
+    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository, RequestJournal requestJournal, SnapshotStore snapshotStore) {
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.securityRepository = securityRepository;
+        this.requestJournal = requestJournal;
+        this.snapshotStore = snapshotStore;
     }
 
     @Value("classpath:persistence/broker.csv")
@@ -45,8 +51,17 @@ public class DataLoader {
     @Value("classpath:persistence/orderbook.csv")
     private Resource orderBookCsvResource;
 
+    public JournalPosition getJournalPosition() {
+        return journalPosition;
+    }
+
     @PostConstruct
     public void loadAll() throws Exception {
+        if (snapshotStore.exists()) {
+            journalPosition = snapshotStore.load();
+            log.info("Snapshot loaded");
+            return;
+        }
         loadBrokers();
         loadShareholders();
         loadSecurities();
@@ -57,126 +72,154 @@ public class DataLoader {
     @PreDestroy
     public void saveAll() throws Exception {
         System.out.print("Saving persistent data ...");
+        if (snapshotStore.isEnabled()) {
+            snapshotStore.write(requestJournal.position());
+            requestJournal.reset();
+            System.out.println(", done!");
+            return;
+        }
         saveBrokers();
         saveShareholdersAndPositions();
         saveSecuritiesAndOrderBooks();
+        requestJournal.reset();
         System.out.println(", done!");
     }
 
+    private static ByteBuffer map(Resource resource) throws IOException {
+        try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static CsvCursor rowsOf(Resource resource) throws IOException {
+        CsvCursor cursor = new CsvCursor(map(resource));
+        cursor.skipLine();
+        return cursor;
+    }
+
     private void loadBrokers() throws Exception {
         brokerRepository.clear();
-      try (Reader reader = new FileReader(brokerCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    brokerRepository.addBroker(Broker.builder()
-                            .brokerId(Long.parseLong(line[0]))
-                            .name(line[1])
-                            .credit(Long.parseLong(line[0]))
-                            .build());
-                }
-            }
+        CsvCursor csv = rowsOf(brokerCsvResource);
+        while (csv.hasRow()) {
+            brokerRepository.addBroker(Broker.builder()
+                    .brokerId(csv.nextLong())
+                    .name(csv.nextString())
+                    .credit(csv.nextLong())
+                    .build());
+            csv.skipLine();
         }
         log.info("Brokers loaded");
     }
 
     private void loadShareholders() throws Exception {
         shareholderRepository.clear();
-        try (Reader reader = new FileReader(shareholderCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    shareholderRepository.addShareholder(Shareholder.builder()
-                            .shareholderId(Long.parseLong(line[0]))
-                            .name(line[1])
-                            .build());
-                }
-            }
+        CsvCursor csv = rowsOf(shareholderCsvResource);
+        while (csv.hasRow()) {
+            shareholderRepository.addShareholder(Shareholder.builder()
+                    .shareholderId(csv.nextLong())
+                    .name(csv.nextString())
+                    .build());
+            csv.skipLine();
         }
         log.info("Shareholders loaded");
     }
 
     private void loadSecurities() throws Exception {
         securityRepository.clear();
-        try (Reader reader = new FileReader(securityCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    securityRepository.addSecurity(Security.builder()
-                            .isin(line[0])
-                            .tickSize(Integer.parseInt(line[1]))
-                            .lotSize(Integer.parseInt(line[2]))
-                            .build());
-                }
-            }
+        CsvCursor csv = rowsOf(securityCsvResource);
+        while (csv.hasRow()) {
+            securityRepository.addSecurity(Security.builder()
+                    .isin(csv.nextString())
+                    .tickSize(csv.nextInt())
+                    .lotSize(csv.nextInt())
+                    .orderBook(securityRepository.newOrderBook())
+                    .stopOrderBook(securityRepository.newStopOrderBook())
+                    .build());
+            csv.skipLine();
         }
         log.info("Securities loaded");
     }
 
     private void loadPositions() throws Exception {
-        try (Reader reader = new FileReader(positionCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[0]));
-                    Security security = securityRepository.findSecurityByIsin(line[1]);
-                    shareholder.incPosition(security, Integer.parseInt(line[2]));
-                }
-            }
+        CsvCursor csv = rowsOf(positionCsvResource);
+        while (csv.hasRow()) {
+            Shareholder shareholder = shareholderRepository.findShareholderById(csv.nextLong());
+            Security security = securityRepository.findSecurityByIsin(csv.nextString());
+            shareholder.incPosition(security, csv.nextInt());
+            csv.skipLine();
         }
         log.info("Positions loaded");
     }
 
+    // Chunks of the file are parsed in parallel, the orders are then partitioned by security and
+    // every book is sorted once into priority order and built on its own worker.
     private void loadOrderBook() throws Exception {
-        LinkedList<Order> orders = new LinkedList<>();
-        try (Reader reader = new FileReader(orderBookCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    Security security = securityRepository.findSecurityByIsin(line[1]);
-                    Broker broker = brokerRepository.findBrokerById(Long.parseLong(line[5]));
-                    Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[6]));
+        ByteBuffer file = map(orderBookCsvResource);
+        List<ByteBuffer> chunks = chunksOf(file, ForkJoinPool.getCommonPoolParallelism() + 1);
+        List<List<Order>> parsed = chunks.parallelStream().map(this::parseOrders).toList();
+
+        Map<Security, List<Order>> ordersBySecurity = new HashMap<>();
+        for (List<Order> orders : parsed)
+            for (Order order : orders)
+                ordersBySecurity.computeIfAbsent(order.getSecurity(), security -> new ArrayList<>()).add(order);
+        ordersBySecurity.entrySet().parallelStream().forEach(book -> buildOrderBook(book.getKey(), book.getValue()));
+        log.info("Order Book loaded");
+    }
+
+    private static List<ByteBuffer> chunksOf(ByteBuffer file, int count) {
+        int start = 0;
+        while (start < file.limit() && file.get(start++) != '\n') ;
+        List<ByteBuffer> chunks = new ArrayList<>(count);
+        int chunkSize = Math.max(1, (file.limit() - start) / count);
+        while (start < file.limit()) {
+            int end = Math.min(file.limit(), start + chunkSize);
+            while (end < file.limit() && file.get(end - 1) != '\n')
+                end++;
+            chunks.add(file.slice(start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private List<Order> parseOrders(ByteBuffer chunk) {
+        CsvCursor csv = new CsvCursor(chunk);
+        List<Order> orders = new ArrayList<>();
+        Security security = null;
+        while (csv.hasRow()) {
 //orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity
 //0       1    2    3        4     5        6             7         8        9
-                    int peakSize = Integer.parseInt(line[8]);
-                    Order order;
-                    if (peakSize == 0) {
-                        order = new Order(
-                                Long.parseLong(line[0]),
-                                security,
-                                Side.parse(line[2]),
-                                Integer.parseInt(line[3]),
-                                Integer.parseInt(line[4]),
-                                broker,
-                                shareholder,
-                                LocalDateTime.parse(line[7]),
-                                OrderStatus.QUEUED);
-                    } else {
-                        order = new IcebergOrder(
-                                Long.parseLong(line[0]),
-                                security,
-                                Side.parse(line[2]),
-                                Integer.parseInt(line[3]),
-                                Integer.parseInt(line[4]),
-                                broker,
-                                shareholder,
-                                LocalDateTime.parse(line[7]),
-                                Integer.parseInt(line[8]),
-                                Integer.parseInt(line[9]),
-                                OrderStatus.QUEUED);
-                    }
-                    orders.addFirst(order);
-                }
-            }
-        }
-        Iterator<Order> it = orders.descendingIterator();
-        while (it.hasNext()) {
-            Order order = it.next();
-            order.getSecurity().getOrderBook().enqueue(order);
+            long orderId = csv.nextLong();
+            String isin = csv.nextString();
+            if (security == null || !isin.equals(security.getIsin()))
+                security = securityRepository.findSecurityByIsin(isin);
+            Side side = csv.nextFirstByte() == 'B' ? Side.BUY : Side.SELL;
+            int quantity = csv.nextInt();
+            int price = csv.nextInt();
+            Broker broker = brokerRepository.findBrokerById(csv.nextLong());
+            Shareholder shareholder = shareholderRepository.findShareholderById(csv.nextLong());
+            LocalDateTime entryTime = csv.nextDateTime();
+            int peakSize = csv.nextInt();
+            int displayedQuantity = csv.nextInt();
+            csv.skipLine();
+            if (peakSize == 0)
+                orders.add(new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime, OrderStatus.QUEUED));
+            else
+                orders.add(new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime, peakSize, displayedQuantity, OrderStatus.QUEUED));
         }
-        log.info("Order Book loaded");
+        return orders;
+    }
+
+    private static void buildOrderBook(Security security, List<Order> orders) {
+        orders.sort(BOOK_ORDER);
+        OrderBook orderBook = security.getOrderBook();
+        for (Order order : orders)
+            orderBook.restore(order);
     }
 
+    // Stable, so orders at the same price keep the time priority they were saved in.
+    private static final Comparator<Order> BOOK_ORDER = Comparator.comparing(Order::getSide)
+            .thenComparingInt(order -> order.getSide() == Side.BUY ? -order.getPrice() : order.getPrice());
+
     private void saveBrokers() throws Exception {
         try (PrintWriter writer = new PrintWriter(new FileWriter(brokerCsvResource.getFile()))) {
             writer.println("brokerId,name,credit");
@@ -201,11 +244,14 @@ public class DataLoader {
                     joiner.add(String.valueOf(shareholder.getShareholderId()))
                             .add(shareholder.getName());
                     shareholderWriter.println(joiner);
-                    for (var entry : shareholder.getPositions().entrySet()) {
+                    for (Security security : securityRepository.allSecurities()) {
+                        int position = shareholder.getPosition(security);
+                        if (position == 0)
+                            continue;
                         StringJoiner posJoiner = new StringJoiner(",");
                         posJoiner.add(String.valueOf(shareholder.getShareholderId()))
-                                .add(entry.getKey().getIsin())
-                                .add(String.valueOf(entry.getValue()));
+                                .add(security.getIsin())
+                                .add(String.valueOf(position));
                         positionWriter.println(posJoiner);
                     }
                 }
@@ -240,7 +286,7 @@ public class DataLoader {
         orderJoiner.add(String.valueOf(order.getOrderId()))
                 .add(order.getSecurity().getIsin())
                 .add(order.getSide().toString())
-                .add(String.valueOf(order.getQuantity()))
+                .add(String.valueOf(order.getTotalQuantity()))
                 .add(String.valueOf(order.getPrice()))
                 .add(String.valueOf(order.getBroker().getBrokerId()))
                 .add(String.valueOf(order.getShareholder().getShareholderId()))
@@ -1,23 +1,58 @@
 package ir.ramtung.tinyme.repository;
 
+import ir.ramtung.tinyme.domain.entity.OrderBook;
 import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.StopOrderBook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 
+// Securities are numbered densely as they are added (they are all added at load time), so the
+// ISIN only has to be hashed once when a request comes in; everything after that can use the id.
+// A security that replaces one with the same ISIN takes over its id, and with it the positions
+// shareholders hold in it. Numbering starts again from zero when the repository is cleared.
 @Component
 public class SecurityRepository {
-    private final HashMap<String, Security> securityByIsin = new HashMap<>();
+    private final LinkedHashMap<String, Security> securityByIsin = new LinkedHashMap<>();
+    private final ArrayList<Security> securityById = new ArrayList<>();
+    @Value("${offHeapStopOrders:false}")
+    private boolean offHeapStopOrders;
+    @Value("${offHeapOrderBook:false}")
+    private boolean offHeapOrderBook;
+
     public Security findSecurityByIsin(String isin) {
         return securityByIsin.get(isin);
     }
 
+    public Security findSecurityById(int id) {
+        return id >= 0 && id < securityById.size() ? securityById.get(id) : null;
+    }
+
     public void addSecurity(Security security) {
-        securityByIsin.put(security.getIsin(), security);
+        Security existing = securityByIsin.put(security.getIsin(), security);
+        if (existing != null) {
+            security.setId(existing.getId());
+            securityById.set(security.getId(), security);
+        }
+        else {
+            security.setId(securityById.size());
+            securityById.add(security);
+        }
+    }
+
+    public OrderBook newOrderBook() {
+        return new OrderBook(offHeapOrderBook);
+    }
+
+    public StopOrderBook newStopOrderBook() {
+        return new StopOrderBook(offHeapStopOrders);
     }
 
     public void clear() {
         securityByIsin.clear();
+        securityById.clear();
     }
 
     Iterable<? extends Security> allSecurities() {
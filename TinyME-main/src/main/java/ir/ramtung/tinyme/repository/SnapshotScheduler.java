@@ -0,0 +1,84 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.messaging.ExecutionShards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Takes a snapshot every snapshotIntervalSeconds while the execution shards are quiesced, so the
+// image is consistent and matches the journal position it is tagged with.
+@Component
+@Profile("!test")
+public class SnapshotScheduler implements SmartLifecycle {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final SnapshotStore snapshotStore;
+    private final ExecutionShards executionShards;
+    private final RequestJournal requestJournal;
+    private final long intervalSeconds;
+    private ScheduledExecutorService executor;
+
+    public SnapshotScheduler(SnapshotStore snapshotStore, ExecutionShards executionShards, RequestJournal requestJournal,
+                             @Value("${snapshotIntervalSeconds:60}") long intervalSeconds) {
+        this.snapshotStore = snapshotStore;
+        this.executionShards = executionShards;
+        this.requestJournal = requestJournal;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public void takeSnapshot() {
+        try {
+            long start = System.nanoTime();
+            executionShards.quiesce(() -> {
+                try {
+                    snapshotStore.write(requestJournal.position());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            log.info("Snapshot written in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.warning("Snapshot failed: " + ex);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!snapshotStore.isEnabled())
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::takeSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (executor == null)
+            return;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+}
@@ -0,0 +1,288 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.JournalPosition;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Binary image of the repositories and all order books, tagged with the journal position it was
+// taken at. It is written to a temporary file and moved into place, so a crash leaves either the
+// previous snapshot or the new one, and it is loaded from a single read-only mapping of the file.
+//
+// Layout (little endian): magic, version, journal id and offset, then sections of brokers,
+// shareholders, securities (each followed by its queued orders and its inactive stop orders as
+// BinaryCodec frames) and positions. Every entry of a section is preceded by a 1 byte, and a 0
+// byte ends the section.
+@Component
+public class SnapshotStore {
+    private static final int MAGIC = 0x544d5353;
+    private static final short VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_ENTRY_SIZE = 1 << 16;
+    private static final byte ENTRY = 1;
+    private static final byte END_OF_SECTION = 0;
+
+    private final BinaryCodec codec = new BinaryCodec();
+    private final Path path;
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+
+    public SnapshotStore(@Value("${snapshotPath:}") String path, BrokerRepository brokerRepository,
+                         ShareholderRepository shareholderRepository, SecurityRepository securityRepository) {
+        this.path = path.isEmpty() ? null : Path.of(path);
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    public boolean exists() {
+        return isEnabled() && Files.exists(path);
+    }
+
+    public void write(JournalPosition journalPosition) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.buffer.putInt(MAGIC).putShort(VERSION).putLong(journalPosition.journalId()).putLong(journalPosition.offset());
+            writeBrokers(out);
+            writeShareholders(out);
+            writeSecurities(out);
+            writePositions(out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeBrokers(Output out) throws IOException {
+        for (Broker broker : brokerRepository.allBrokers()) {
+            ByteBuffer buffer = out.entry();
+            buffer.putLong(broker.getBrokerId());
+            putString(buffer, broker.getName());
+            buffer.putLong(broker.getCredit());
+        }
+        out.endSection();
+    }
+
+    private void writeShareholders(Output out) throws IOException {
+        for (Shareholder shareholder : shareholderRepository.allShareholders()) {
+            ByteBuffer buffer = out.entry();
+            buffer.putLong(shareholder.getShareholderId());
+            putString(buffer, shareholder.getName());
+        }
+        out.endSection();
+    }
+
+    private void writeSecurities(Output out) throws IOException {
+        for (Security security : securityRepository.allSecurities()) {
+            ByteBuffer buffer = out.entry();
+            putString(buffer, security.getIsin());
+            buffer.putInt(security.getTickSize())
+                    .putInt(security.getLotSize())
+                    .put((byte) security.getMatchingState().ordinal())
+                    .putInt(security.getLastTradedPrice())
+                    .putInt(security.getOpeningPrice())
+                    .putInt(security.getTradableQuantity());
+            for (Order order : security.getOrderBook().getBuyQueue())
+                writeOrder(out.entry(), order);
+            for (Order order : security.getOrderBook().getSellQueue())
+                writeOrder(out.entry(), order);
+            out.endSection();
+            for (EnterOrderRq stopOrder : security.getStopOrderBook().getStopOrders()) {
+                ByteBuffer frame = out.entry();
+                int lengthAt = frame.position();
+                frame.position(lengthAt + Integer.BYTES);
+                codec.encode(stopOrder, frame);
+                frame.putInt(lengthAt, frame.position() - lengthAt - Integer.BYTES);
+            }
+            out.endSection();
+        }
+        out.endSection();
+    }
+
+    private static void writeOrder(ByteBuffer buffer, Order order) {
+        buffer.putLong(order.getOrderId())
+                .put((byte) order.getSide().ordinal())
+                .putInt(order.getTotalQuantity())
+                .putInt(order.getPrice())
+                .putLong(order.getBroker().getBrokerId())
+                .putLong(order.getShareholder().getShareholderId());
+        putTime(buffer, order.getEntryTime());
+        if (order instanceof IcebergOrder icebergOrder)
+            buffer.putInt(icebergOrder.getPeakSize()).putInt(icebergOrder.getDisplayedQuantity());
+        else
+            buffer.putInt(0).putInt(0);
+    }
+
+    private void writePositions(Output out) throws IOException {
+        for (Shareholder shareholder : shareholderRepository.allShareholders()) {
+            for (Security security : securityRepository.allSecurities()) {
+                int position = shareholder.getPosition(security);
+                if (position == 0)
+                    continue;
+                ByteBuffer buffer = out.entry();
+                buffer.putLong(shareholder.getShareholderId());
+                putString(buffer, security.getIsin());
+                buffer.putInt(position);
+            }
+        }
+        out.endSection();
+    }
+
+    public JournalPosition load() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC)
+                throw new IOException("Not a snapshot file: " + path);
+            short version = in.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version);
+            JournalPosition journalPosition = new JournalPosition(in.getLong(), in.getLong());
+            loadBrokers(in);
+            loadShareholders(in);
+            loadSecurities(in);
+            loadPositions(in);
+            return journalPosition;
+        }
+    }
+
+    private void loadBrokers(ByteBuffer in) {
+        brokerRepository.clear();
+        while (in.get() == ENTRY) {
+            long brokerId = in.getLong();
+            String name = getString(in);
+            brokerRepository.addBroker(Broker.builder().brokerId(brokerId).name(name).credit(in.getLong()).build());
+        }
+    }
+
+    private void loadShareholders(ByteBuffer in) {
+        shareholderRepository.clear();
+        while (in.get() == ENTRY) {
+            long shareholderId = in.getLong();
+            shareholderRepository.addShareholder(Shareholder.builder().shareholderId(shareholderId).name(getString(in)).build());
+        }
+    }
+
+    private void loadSecurities(ByteBuffer in) {
+        securityRepository.clear();
+        while (in.get() == ENTRY) {
+            Security security = Security.builder()
+                    .isin(getString(in))
+                    .tickSize(in.getInt())
+                    .lotSize(in.getInt())
+                    .matchingState(MatchingState.values()[in.get()])
+                    .lastTradedPrice(in.getInt())
+                    .openingPrice(in.getInt())
+                    .tradableQuantity(in.getInt())
+                    .orderBook(securityRepository.newOrderBook())
+                    .stopOrderBook(securityRepository.newStopOrderBook())
+                    .build();
+            securityRepository.addSecurity(security);
+            while (in.get() == ENTRY)
+                security.getOrderBook().restore(readOrder(in, security));
+            while (in.get() == ENTRY) {
+                int length = in.getInt();
+                int end = in.position() + length;
+                ByteBuffer frame = in.slice(in.position(), length);
+                security.getStopOrderBook().add((EnterOrderRq) codec.decode(frame));
+                in.position(end);
+            }
+        }
+    }
+
+    private Order readOrder(ByteBuffer in, Security security) {
+        long orderId = in.getLong();
+        Side side = Side.values()[in.get()];
+        int quantity = in.getInt();
+        int price = in.getInt();
+        Broker broker = brokerRepository.findBrokerById(in.getLong());
+        Shareholder shareholder = shareholderRepository.findShareholderById(in.getLong());
+        LocalDateTime entryTime = getTime(in);
+        int peakSize = in.getInt();
+        int displayedQuantity = in.getInt();
+        if (peakSize == 0)
+            return new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime, OrderStatus.QUEUED);
+        return new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime, peakSize, displayedQuantity, OrderStatus.QUEUED);
+    }
+
+    private void loadPositions(ByteBuffer in) {
+        while (in.get() == ENTRY) {
+            Shareholder shareholder = shareholderRepository.findShareholderById(in.getLong());
+            Security security = securityRepository.findSecurityByIsin(getString(in));
+            shareholder.incPosition(security, in.getInt());
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano());
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private ByteBuffer entry() throws IOException {
+            if (buffer.remaining() < MAX_ENTRY_SIZE)
+                flush();
+            return buffer.put(ENTRY);
+        }
+
+        private void endSection() throws IOException {
+            if (!buffer.hasRemaining())
+                flush();
+            buffer.put(END_OF_SECTION);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ir.ramtung.tinyme.util;
+
+import java.util.Arrays;
+
+// Growable int array whose storage is split into fixed-size chunks. A chunk is never copied once it
+// is created; growing only replaces the chunk directory. Different threads may therefore write
+// different indexes at the same time without a concurrent grow losing any of their writes.
+public class ChunkedIntArray {
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int[][] NO_CHUNKS = new int[0][];
+
+    private volatile int[][] chunks = NO_CHUNKS;
+
+    public int get(int index) {
+        int[][] chunks = this.chunks;
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk >= chunks.length || chunks[chunk] == null)
+            return 0;
+        return chunks[chunk][index & CHUNK_MASK];
+    }
+
+    public void set(int index, int value) {
+        chunkOf(index)[index & CHUNK_MASK] = value;
+    }
+
+    public int add(int index, int delta) {
+        int[] chunk = chunkOf(index);
+        return chunk[index & CHUNK_MASK] += delta;
+    }
+
+    public int capacity() {
+        return chunks.length << CHUNK_BITS;
+    }
+
+    private int[] chunkOf(int index) {
+        if (index < 0)
+            throw new ArrayIndexOutOfBoundsException(index);
+        int[][] chunks = this.chunks;
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk < chunks.length && chunks[chunk] != null)
+            return chunks[chunk];
+        return grow(chunk);
+    }
+
+    private synchronized int[] grow(int chunk) {
+        int[][] current = this.chunks;
+        if (chunk < current.length && current[chunk] != null)
+            return current[chunk];
+        int[][] grown = Arrays.copyOf(current, chunk < current.length ? current.length : Math.max(chunk + 1, current.length * 2));
+        grown[chunk] = new int[CHUNK_SIZE];
+        this.chunks = grown;
+        return grown[chunk];
+    }
+}
@@ -0,0 +1,79 @@
+package ir.ramtung.tinyme.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Fixed-size records packed into ByteBuffer chunks, either on the heap or in direct memory.
+// Records are addressed by an int slot rather than a reference, so however many records are live,
+// the collector only ever sees a handful of buffers. Freed slots are reused before new ones.
+public class RecordSlab {
+    private static final int RECORDS_PER_CHUNK = 1024;
+
+    private final int recordSize;
+    private final boolean direct;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    public RecordSlab(int recordSize, boolean direct) {
+        this.recordSize = recordSize;
+        this.direct = direct;
+    }
+
+    public int allocate() {
+        if (freeCount > 0)
+            return freeSlots[--freeCount];
+        int slot = nextSlot++;
+        int chunk = slot / RECORDS_PER_CHUNK;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk + 1);
+            int capacity = recordSize * RECORDS_PER_CHUNK;
+            chunks[chunk] = (direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity)).order(ByteOrder.nativeOrder());
+        }
+        return slot;
+    }
+
+    public void free(int slot) {
+        if (freeCount == freeSlots.length)
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        freeSlots[freeCount++] = slot;
+    }
+
+    public int liveRecords() {
+        return nextSlot - freeCount;
+    }
+
+    private ByteBuffer chunkOf(int slot) {
+        return chunks[slot / RECORDS_PER_CHUNK];
+    }
+
+    private int offsetOf(int slot, int field) {
+        return (slot % RECORDS_PER_CHUNK) * recordSize + field;
+    }
+
+    public long getLong(int slot, int field) {
+        return chunkOf(slot).getLong(offsetOf(slot, field));
+    }
+
+    public void putLong(int slot, int field, long value) {
+        chunkOf(slot).putLong(offsetOf(slot, field), value);
+    }
+
+    public int getInt(int slot, int field) {
+        return chunkOf(slot).getInt(offsetOf(slot, field));
+    }
+
+    public void putInt(int slot, int field, int value) {
+        chunkOf(slot).putInt(offsetOf(slot, field), value);
+    }
+
+    public byte getByte(int slot, int field) {
+        return chunkOf(slot).get(offsetOf(slot, field));
+    }
+
+    public void putByte(int slot, int field, byte value) {
+        chunkOf(slot).put(offsetOf(slot, field), value);
+    }
+}
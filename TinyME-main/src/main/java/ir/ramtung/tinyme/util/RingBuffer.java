@@ -0,0 +1,88 @@
+package ir.ramtung.tinyme.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Multi-producer, single-consumer ring of preallocated slots in the style of the LMAX disruptor.
+// A producer claims a sequence, fills that slot in place and publishes it; the consumer walks the
+// published sequences in order and releases them once handled, which frees the slots for reuse.
+public class RingBuffer<E> {
+    private final Object[] slots;
+    private final int mask;
+    private final int indexShift;
+    private final AtomicIntegerArray publishedRound;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong released = new AtomicLong(-1);
+
+    public RingBuffer(int capacity, Supplier<E> slotFactory) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Ring capacity must be a power of two");
+        slots = new Object[capacity];
+        mask = capacity - 1;
+        indexShift = Integer.numberOfTrailingZeros(capacity);
+        publishedRound = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = slotFactory.get();
+            publishedRound.set(i, -1);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long claim() {
+        long sequence = claimed.incrementAndGet();
+        while (sequence - slots.length > released.get())
+            LockSupport.parkNanos(1_000);
+        return sequence;
+    }
+
+    public long tryClaim() {
+        long sequence;
+        do {
+            sequence = claimed.get() + 1;
+            if (sequence - slots.length > released.get())
+                return -1;
+        } while (!claimed.compareAndSet(sequence - 1, sequence));
+        return sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        publishedRound.set((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    public boolean isPublished(long sequence) {
+        return publishedRound.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    public long highestPublished(long from, long to) {
+        long sequence = from;
+        while (sequence < to && isPublished(sequence + 1))
+            sequence++;
+        return sequence;
+    }
+
+    public long lastClaimed() {
+        return claimed.get();
+    }
+
+    public long lastReleased() {
+        return released.get();
+    }
+
+    public void release(long sequence) {
+        released.set(sequence);
+    }
+
+    public boolean isEmpty() {
+        return released.get() == claimed.get();
+    }
+}
@@ -0,0 +1,101 @@
+package ir.ramtung.tinyme.util;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// The single consumer of a RingBuffer. Every slot published since the last pass is handed to the
+// handler as one batch, the last of which is flagged so handlers can flush work per batch. While
+// the ring is empty the handler is polled through onIdle, and onShutdown runs once it is drained.
+public class RingProcessor<E> implements Runnable {
+    public interface Handler<E> {
+        void onSlot(E slot, boolean endOfBatch);
+
+        default void onIdle() {}
+
+        default void onShutdown() {}
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RingBuffer<E> ring;
+    private final Handler<E> handler;
+    private volatile boolean running;
+    private Thread thread;
+
+    public RingProcessor(RingBuffer<E> ring, Handler<E> handler) {
+        this.ring = ring;
+        this.handler = handler;
+    }
+
+    public synchronized void start(String threadName) {
+        if (thread != null)
+            return;
+        running = true;
+        thread = new Thread(this, threadName);
+        thread.start();
+    }
+
+    public synchronized boolean halt(long timeoutMillis) throws InterruptedException {
+        if (thread == null)
+            return true;
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(timeoutMillis);
+        boolean drained = !thread.isAlive();
+        thread = null;
+        return drained;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        long next = ring.lastReleased() + 1;
+        int idle = 0;
+        while (true) {
+            if (!ring.isPublished(next)) {
+                if (!running && ring.lastClaimed() < next)
+                    break;
+                try {
+                    handler.onIdle();
+                } catch (RuntimeException ex) {
+                    log.log(Level.SEVERE, "Ring handler failed while idle", ex);
+                }
+                idle = backOff(idle);
+                continue;
+            }
+            idle = 0;
+            long last = ring.highestPublished(next, ring.lastClaimed());
+            for (long sequence = next; sequence <= last; sequence++) {
+                try {
+                    handler.onSlot(ring.get(sequence), sequence == last);
+                } catch (RuntimeException ex) {
+                    log.log(Level.SEVERE, "Handling ring slot " + sequence + " failed", ex);
+                }
+            }
+            ring.release(last);
+            next = last + 1;
+        }
+        try {
+            handler.onShutdown();
+        } catch (RuntimeException ex) {
+            log.log(Level.SEVERE, "Ring handler failed on shutdown", ex);
+        }
+    }
+
+    private int backOff(int idle) {
+        if (idle < SPIN_TRIES)
+            Thread.onSpinWait();
+        else if (idle < SPIN_TRIES + YIELD_TRIES)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(PARK_NANOS);
+        return idle + 1;
+    }
+}
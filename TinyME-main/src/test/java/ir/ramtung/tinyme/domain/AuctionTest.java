@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @SpringBootTest
@@ -189,6 +190,63 @@ public class AuctionTest {
         assertThat(buyer_broker.getCredit()).isEqualTo(current_broker_credit);
     }
 
+    @Test
+    void in_reopening_trades_are_paid_from_the_credit_reserved_on_entry() {
+        buyer_broker.decreaseCreditBy(100_000_000L - 300 * 16000);
+        orderHandler.handleChangeMatchingState(new ChangeMatchingStateRq(security.getIsin(), MatchingState.AUCTION));
+        EnterOrderRq OrderRq1 = EnterOrderRq.createNewOrderRq(1,  security.getIsin(), 13, LocalDateTime.now(), Side.BUY, 300, 16000, 1, 1, 0);
+        orderHandler.handleEnterOrder(OrderRq1);
+        assertThat(buyer_broker.getCredit()).isZero();
+        int openingPrice = security.getOpeningPrice();
+
+        orderHandler.handleChangeMatchingState(new ChangeMatchingStateRq(security.getIsin(), MatchingState.CONTINUOUS));
+
+        verify(eventPublisher).publish(new TradeEvent(security.getIsin(), openingPrice, 300, 13, 5));
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 13)).isNull();
+        assertThat(buyer_broker.getCredit()).isEqualTo((long) (16000 - openingPrice) * 300);
+    }
+
+    @Test
+    void in_reopening_buy_iceberg_order_is_replenished_until_it_is_filled() {
+        long buyer_broker_initial_credit = 100_000_000L;
+        orderHandler.handleChangeMatchingState(new ChangeMatchingStateRq(security.getIsin(), MatchingState.AUCTION));
+        EnterOrderRq OrderRq1 = EnterOrderRq.createNewOrderRq(1,  security.getIsin(), 13, LocalDateTime.now(), Side.BUY, 500, 16000, 1, 1, 100);
+        orderHandler.handleEnterOrder(OrderRq1);
+        int openingPrice = security.getOpeningPrice();
+
+        orderHandler.handleChangeMatchingState(new ChangeMatchingStateRq(security.getIsin(), MatchingState.CONTINUOUS));
+
+        verify(eventPublisher, times(3)).publish(new TradeEvent(security.getIsin(), openingPrice, 100, 13, 5));
+        verify(eventPublisher, times(2)).publish(new TradeEvent(security.getIsin(), openingPrice, 100, 13, 6));
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 13)).isNull();
+        assertThat(security.getOrderBook().getSellQueue().getFirst().getOrderId()).isEqualTo(6);
+        assertThat(security.getOrderBook().getSellQueue().getFirst().getQuantity()).isEqualTo(100);
+        assertThat(buyer_broker.getCredit()).isEqualTo(buyer_broker_initial_credit - 500L * openingPrice);
+    }
+
+    @Test
+    void in_reopening_iceberg_order_is_replenished_and_matched_again_at_opening_price() {
+        long buyer_broker_initial_credit = 100_000_000L;
+        long seller_broker_initial_credit = 100_000_000L;
+        orderBook.enqueue(new IcebergOrder(7, security, Side.SELL, 400, 15400, seller_broker, shareholder, 100));
+
+        orderHandler.handleChangeMatchingState(new ChangeMatchingStateRq(security.getIsin(), MatchingState.AUCTION));
+        EnterOrderRq OrderRq1 = EnterOrderRq.createNewOrderRq(1,  security.getIsin(), 13, LocalDateTime.now(), Side.BUY, 500, 16000, 1, 1, 0);
+        orderHandler.handleEnterOrder(OrderRq1);
+        verify(eventPublisher).publish(new OpeningPriceEvent(security.getIsin(), 16000, 2100));
+
+        orderHandler.handleChangeMatchingState(new ChangeMatchingStateRq(security.getIsin(), MatchingState.CONTINUOUS));
+
+        verify(eventPublisher).publish(new TradeEvent(security.getIsin(), 16000, 300, 13, 5));
+        verify(eventPublisher, times(2)).publish(new TradeEvent(security.getIsin(), 16000, 100, 13, 7));
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 13)).isNull();
+        assertThat(security.getOrderBook().getSellQueue().getFirst().getOrderId()).isEqualTo(7);
+        assertThat(security.getOrderBook().getSellQueue().getFirst().getTotalQuantity()).isEqualTo(200);
+        assertThat(security.getLastTradedPrice()).isEqualTo(16000);
+        assertThat(buyer_broker.getCredit()).isEqualTo(buyer_broker_initial_credit - 500 * 16000);
+        assertThat(seller_broker.getCredit()).isEqualTo(seller_broker_initial_credit + 500 * 16000);
+    }
+
     @Test
     void By_reopening_inactive_orders_are_activated_and_added_to_queue_if_the_target_matching_state_is_auction() {
         long buyer_broker_initial_credit = 100_000_000L;
@@ -1,15 +1,20 @@
 package ir.ramtung.tinyme.domain;
 
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.CreditLedger;
 import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.MatchingControls.CreditControl;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
@@ -188,4 +193,83 @@ public class BrokerCreditTest {
         assertThatNoException().isThrownBy(() -> security.deleteOrder(deleteOrderRq));
         assertThat(buyer_broker.getCredit()).isEqualTo(buyer_broker_initial_credit + orders.get(0).getValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    void sellers_are_not_paid_before_the_matching_is_accepted() {
+        long seller_broker_initial_credit = 100_000_000L;
+        Order order = new Order(11, security, Side.BUY, 700, 15805, buyer_broker, shareholder);
+        matcher.match(order, MatchingState.CONTINUOUS, 0);
+        assertThat(seller_broker.getCredit()).isEqualTo(seller_broker_initial_credit);
+        assertThat(buyer_broker.getCredit()).isEqualTo(100_000_000L - 300 * 15800 - 400 * 15805);
+    }
+
+    @Test
+    void broker_trading_with_itself_pays_only_for_the_remainder() {
+        Order order = new Order(11, security, Side.BUY, 700, 15805, seller_broker, shareholder);
+        MatchResult result = matcher.execute(order, MatchingState.CONTINUOUS, 0);
+        assertThat(result.outcome()).isEqualTo(MatchingOutcome.EXECUTED);
+        assertThat(result.trades()).extracting(Trade::getQuantity).containsExactly(300);
+        assertThat(orderBook.findByOrderId(Side.BUY, 11).getQuantity()).isEqualTo(400);
+        assertThat(seller_broker.getCredit()).isEqualTo(100_000_000L - 400 * 15805);
+    }
+
+    @Test
+    void broker_trading_with_itself_needs_the_credit_for_the_whole_match_before_its_sales_are_paid() {
+        seller_broker.decreaseCreditBy(100_000_000L - 300 * 15800);
+        Order order = new Order(11, security, Side.BUY, 585, 15810, seller_broker, shareholder);
+        MatchResult result = matcher.execute(order, MatchingState.CONTINUOUS, 0);
+        assertThat(result.outcome()).isEqualTo(MatchingOutcome.NOT_ENOUGH_CREDIT);
+        assertThat(orderBook.getSellQueue()).extracting(Order::getQuantity).containsExactly(300, 285, 800, 340, 65);
+        assertThat(seller_broker.getCredit()).isEqualTo(300 * 15800);
+    }
+
+    @Test
+    void rejected_matching_leaves_the_book_and_credits_untouched() {
+        Order order = new Order(11, security, Side.BUY, 2000, 15820, buyer_broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 1800);
+        MatchResult result = matcher.execute(order, MatchingState.CONTINUOUS, 0);
+        assertThat(result.outcome()).isEqualTo(MatchingOutcome.NOT_ENOUGH_EXECUTED_QUANTITY);
+        assertThat(orderBook.getSellQueue()).extracting(Order::getQuantity).containsExactly(300, 285, 800, 340, 65);
+        assertThat(buyer_broker.getCredit()).isEqualTo(100_000_000L);
+        assertThat(seller_broker.getCredit()).isEqualTo(100_000_000L);
+    }
+
+    @Test
+    void sell_order_below_its_minimum_execution_quantity_leaves_the_buy_queue_untouched() {
+        Order order = new Order(11, security, Side.SELL, 1000, 15500, seller_broker, shareholder, LocalDateTime.now(), OrderStatus.NEW, 900);
+        MatchResult result = matcher.execute(order, MatchingState.CONTINUOUS, 0);
+        assertThat(result.outcome()).isEqualTo(MatchingOutcome.NOT_ENOUGH_EXECUTED_QUANTITY);
+        assertThat(orderBook.getBuyQueue()).extracting(Order::getQuantity).containsExactly(100, 43, 445, 526, 1000);
+        assertThat(seller_broker.getCredit()).isEqualTo(100_000_000L);
+    }
+
+    @Test
+    void auction_trade_below_the_buy_price_releases_the_difference_in_full() {
+        Security auctionSecurity = Security.builder().matchingState(MatchingState.AUCTION).build();
+        Broker broker = Broker.builder().credit(0).build();
+        Order buy = new Order(11, auctionSecurity, Side.BUY, 5_000, 2_000_000, broker, shareholder);
+        Order sell = new Order(12, auctionSecurity, Side.SELL, 5_000, 1_000_000, seller_broker, shareholder);
+        TradeBuffer trades = new TradeBuffer();
+        int trade = trades.add(1_000_000, 5_000, buy, sell);
+
+        new CreditControl(CreditLedger.DIRECT).tradeAccepted(buy, trades, trade);
+        assertThat(broker.getCredit()).isEqualTo(5_000_000_000L);
+    }
+
+    @Test
+    void concurrent_reservations_never_spend_more_than_the_credit() throws InterruptedException {
+        Broker broker = Broker.builder().credit(10_000).build();
+        AtomicInteger granted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    if (broker.reserveCredit(1))
+                        granted.incrementAndGet();
+            }));
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+        assertThat(granted.get()).isEqualTo(10_000);
+        assertThat(broker.getCredit()).isZero();
+    }
+}
@@ -0,0 +1,134 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Math.abs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpeningPriceCalculatorTest {
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private OrderBook orderBook;
+
+    @BeforeEach
+    void setup() {
+        security = Security.builder().build();
+        broker = Broker.builder().credit(100_000_000L).build();
+        shareholder = Shareholder.builder().build();
+        orderBook = security.getOrderBook();
+    }
+
+    private int referenceOpeningPrice(int lastTradedPrice, int tickSize) {
+        List<Order> buys = orderBook.getBuyQueue();
+        List<Order> sells = orderBook.getSellQueue();
+        if (buys.isEmpty() || sells.isEmpty())
+            return 0;
+        int openingPrice = 0;
+        int maximumTradableQuantity = 0;
+        int from = Math.min(buys.get(buys.size() - 1).getPrice(), sells.get(0).getPrice());
+        int to = Math.max(buys.get(0).getPrice(), sells.get(sells.size() - 1).getPrice());
+        for (int price = from; price <= to; price += tickSize) {
+            int tradableQuantity = referenceTradableQuantity(price);
+            if (tradableQuantity == maximumTradableQuantity && abs(price - lastTradedPrice) < abs(openingPrice - lastTradedPrice))
+                openingPrice = price;
+            if (tradableQuantity > maximumTradableQuantity) {
+                maximumTradableQuantity = tradableQuantity;
+                openingPrice = price;
+            }
+        }
+        return openingPrice;
+    }
+
+    private int referenceTradableQuantity(int price) {
+        int quantity = 0;
+        for (Order buy : orderBook.getBuyQueue())
+            if (buy.getPrice() >= price)
+                quantity += buy.getQuantity();
+        for (Order sell : orderBook.getSellQueue())
+            if (sell.getPrice() <= price)
+                quantity += sell.getQuantity();
+        return quantity;
+    }
+
+    @Test
+    void opening_price_is_zero_when_one_side_is_empty() {
+        orderBook.enqueue(new Order(1, security, Side.BUY, 100, 1000, broker, shareholder));
+        assertThat(orderBook.calculateOpeningPriceAccordingTo(0, 1)).isEqualTo(0);
+        assertThat(orderBook.calculateTradableQuantityAccordingTo(0)).isEqualTo(100);
+    }
+
+    @Test
+    void tie_is_broken_in_favour_of_the_price_closer_to_last_traded_price() {
+        orderBook.enqueue(new Order(1, security, Side.BUY, 100, 1010, broker, shareholder));
+        orderBook.enqueue(new Order(2, security, Side.SELL, 100, 1000, broker, shareholder));
+        assertThat(orderBook.calculateOpeningPriceAccordingTo(1004, 1)).isEqualTo(1004);
+        assertThat(orderBook.calculateOpeningPriceAccordingTo(2000, 1)).isEqualTo(1010);
+        assertThat(orderBook.calculateOpeningPriceAccordingTo(0, 1)).isEqualTo(1000);
+        assertThat(orderBook.calculateOpeningPriceAccordingTo(1004, 5)).isEqualTo(1005);
+    }
+
+    @Test
+    void in_place_quantity_changes_are_reflected_after_update() {
+        Order buy = new Order(1, security, Side.BUY, 100, 1010, broker, shareholder);
+        orderBook.enqueue(buy);
+        orderBook.enqueue(new Order(2, security, Side.SELL, 300, 1000, broker, shareholder));
+        orderBook.enqueue(new Order(3, security, Side.BUY, 50, 990, broker, shareholder));
+        assertThat(orderBook.calculateOpeningPriceAccordingTo(0, 1)).isEqualTo(referenceOpeningPrice(0, 1));
+        buy.decreaseQuantity(60);
+        orderBook.updateQuantity(buy);
+        int openingPrice = orderBook.calculateOpeningPriceAccordingTo(0, 1);
+        assertThat(openingPrice).isEqualTo(referenceOpeningPrice(0, 1));
+        assertThat(orderBook.calculateTradableQuantityAccordingTo(openingPrice)).isEqualTo(referenceTradableQuantity(openingPrice));
+    }
+
+    @Test
+    void book_changes_made_outside_the_auction_are_counted_when_the_auction_starts_again() {
+        security.setMatchingState(MatchingState.AUCTION);
+        orderBook.enqueue(new Order(1, security, Side.BUY, 100, 1010, broker, shareholder));
+        orderBook.enqueue(new Order(2, security, Side.SELL, 300, 1000, broker, shareholder));
+        assertThat(orderBook.calculateOpeningPriceAccordingTo(0, 1)).isEqualTo(referenceOpeningPrice(0, 1));
+
+        security.setMatchingState(MatchingState.CONTINUOUS);
+        orderBook.removeByOrderId(Side.BUY, 1);
+        orderBook.enqueue(new Order(3, security, Side.BUY, 500, 1005, broker, shareholder));
+        orderBook.enqueue(new Order(4, security, Side.SELL, 200, 1003, broker, shareholder));
+
+        security.setMatchingState(MatchingState.AUCTION);
+        int openingPrice = orderBook.calculateOpeningPriceAccordingTo(0, 1);
+        assertThat(openingPrice).isEqualTo(referenceOpeningPrice(0, 1));
+        assertThat(orderBook.calculateTradableQuantityAccordingTo(openingPrice)).isEqualTo(referenceTradableQuantity(openingPrice));
+    }
+
+    @Test
+    void matches_the_exhaustive_search_on_random_books() {
+        Random random = new Random(7);
+        for (int tickSize : new int[]{1, 5}) {
+            setup();
+            List<Order> resting = new ArrayList<>();
+            for (int step = 0; step < 400; step++) {
+                if (resting.isEmpty() || random.nextInt(3) > 0) {
+                    Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                    int price = (900 + random.nextInt(40) * 5) / tickSize * tickSize;
+                    Order order = new Order(step + 1, security, side, 1 + random.nextInt(500), price, broker, shareholder);
+                    orderBook.enqueue(order);
+                    resting.add(order);
+                } else {
+                    Order order = resting.remove(random.nextInt(resting.size()));
+                    orderBook.removeByOrderId(order.getSide(), order.getOrderId());
+                }
+                int lastTradedPrice = 900 + random.nextInt(250);
+                int openingPrice = orderBook.calculateOpeningPriceAccordingTo(lastTradedPrice, tickSize);
+                assertThat(openingPrice).isEqualTo(referenceOpeningPrice(lastTradedPrice, tickSize));
+                assertThat(orderBook.calculateTradableQuantityAccordingTo(openingPrice)).isEqualTo(referenceTradableQuantity(openingPrice));
+            }
+        }
+    }
+}
@@ -11,12 +11,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 class OrderBookTest {
     private Security security;
+    private Shareholder shareholder;
     private List<Order> orders;
+
+    OrderBook newOrderBook() {
+        return new OrderBook();
+    }
+
     @BeforeEach
     void setupOrderBook() {
-        security = Security.builder().build();
+        security = Security.builder().orderBook(newOrderBook()).build();
         Broker broker = Broker.builder().build();
-        Shareholder shareholder = Shareholder.builder().build();
+        shareholder = Shareholder.builder().build();
         shareholder.incPosition(security, 100_000);
         orders = Arrays.asList(
                 new Order(1, security, Side.BUY, 304, 15700, broker, shareholder),
@@ -76,4 +82,165 @@ class OrderBookTest {
         orderBook.removeByOrderId(Side.SELL, 10);
         assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void orders_with_the_same_price_keep_their_arrival_order() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = new Order(11, security, Side.BUY, 100, 15450, orders.get(0).getBroker(), orders.get(0).getShareholder());
+        orderBook.enqueue(order);
+        assertThat(orderBook.getBuyQueue()).extracting(Order::getOrderId)
+                .containsExactly(1L, 2L, 3L, 4L, 11L, 5L);
+    }
+
+    @Test
+    void removing_the_only_order_of_the_best_level_exposes_the_next_level() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.matchWithFirst(new Order(11, security, Side.BUY, 100, 15810, orders.get(0).getBroker(), orders.get(0).getShareholder())))
+                .isEqualTo(orders.get(6));
+    }
+
+    @Test
+    void put_back_order_is_placed_before_the_orders_of_its_price_level() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = orders.get(3);
+        orderBook.removeByOrderId(Side.BUY, order.getOrderId());
+        orderBook.putBack(order);
+        assertThat(orderBook.getBuyQueue()).extracting(Order::getOrderId)
+                .containsExactly(1L, 2L, 4L, 3L, 5L);
+    }
+
+    @Test
+    void removed_order_is_no_longer_found_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeByOrderId(Side.BUY, 3);
+        assertThat(orderBook.findByOrderId(Side.BUY, 3)).isNull();
+        assertThat(orderBook.hasOrder(Side.BUY, 3)).isFalse();
+        assertThat(orderBook.getBuyQueue()).extracting(Order::getOrderId)
+                .containsExactly(1L, 2L, 4L, 5L);
+    }
+
+    @Test
+    void order_removed_from_the_middle_of_its_level_can_be_enqueued_again() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeByOrderId(Side.SELL, 7);
+        assertThat(orderBook.getSellQueue()).extracting(Order::getOrderId)
+                .containsExactly(6L, 8L, 9L, 10L);
+        orderBook.enqueue(orders.get(6));
+        assertThat(orderBook.getSellQueue()).extracting(Order::getOrderId)
+                .containsExactly(6L, 8L, 7L, 9L, 10L);
+    }
+
+    @Test
+    void replenished_iceberg_moves_to_the_back_of_its_own_level() {
+        OrderBook orderBook = security.getOrderBook();
+        IcebergOrder iceberg = new IcebergOrder(11, security, Side.SELL, 100, 15810, orders.get(0).getBroker(), shareholder, 30);
+        orderBook.putBack(iceberg);
+        orderBook.removeFirst(Side.SELL);
+        orderBook.decreaseFirst(Side.SELL, 30);
+
+        assertThat(orderBook.getSellQueue()).extracting(Order::getOrderId)
+                .containsExactly(7L, 8L, 11L, 9L, 10L);
+        Order replenished = orderBook.findByOrderId(Side.SELL, 11);
+        assertThat(replenished.getQuantity()).isEqualTo(30);
+        assertThat(replenished.getTotalQuantity()).isEqualTo(70);
+        assertThat(shareholder.getCommittedSellQuantity(security)).isEqualTo(285 + 800 + 340 + 65 + 70);
+    }
+
+    @Test
+    void replenished_iceberg_books_only_its_displayed_peak() {
+        OrderBook orderBook = security.getOrderBook();
+        IcebergOrder iceberg = new IcebergOrder(11, security, Side.BUY, 100, 15900, orders.get(0).getBroker(), shareholder, 30);
+        orderBook.enqueue(iceberg);
+        orderBook.calculateOpeningPriceAccordingTo(15800, 10);
+        int tradableQuantity = orderBook.calculateTradableQuantityAccordingTo(15810);
+
+        orderBook.decreaseFirst(Side.BUY, 30);
+        assertThat(orderBook.findByOrderId(Side.BUY, 11).getQuantity()).isEqualTo(30);
+        assertThat(orderBook.calculateTradableQuantityAccordingTo(15810)).isEqualTo(tradableQuantity);
+    }
+
+    @Test
+    void depth_aggregates_quantity_and_order_count_per_level() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getDepth(Side.BUY, 3)).containsExactly(
+                new DepthLevel(15700, 304, 1),
+                new DepthLevel(15500, 43, 1),
+                new DepthLevel(15450, 971, 2));
+        assertThat(orderBook.getDepth(Side.SELL, 10)).containsExactly(
+                new DepthLevel(15800, 350, 1),
+                new DepthLevel(15810, 1085, 2),
+                new DepthLevel(15820, 405, 2));
+    }
+
+    @Test
+    void depth_of_no_or_negative_levels_is_empty() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getDepth(Side.BUY, 0)).isEmpty();
+        assertThat(orderBook.getDepth(Side.SELL, -1)).isEmpty();
+    }
+
+    @Test
+    void depth_follows_fills_replenishments_and_cancels() {
+        OrderBook orderBook = security.getOrderBook();
+        IcebergOrder iceberg = new IcebergOrder(11, security, Side.SELL, 100, 15810, orders.get(0).getBroker(), shareholder, 30);
+        orderBook.enqueue(iceberg);
+        assertThat(orderBook.getDepth(Side.SELL, 2)).containsExactly(
+                new DepthLevel(15800, 350, 1),
+                new DepthLevel(15810, 1115, 3));
+
+        orderBook.decreaseFirst(Side.SELL, 350);
+        orderBook.decreaseFirst(Side.SELL, 285);
+        orderBook.decreaseFirst(Side.SELL, 300);
+        assertThat(orderBook.getDepth(Side.SELL, 1)).containsExactly(new DepthLevel(15810, 530, 2));
+
+        orderBook.decreaseFirst(Side.SELL, 500);
+        orderBook.decreaseFirst(Side.SELL, 30);
+        assertThat(orderBook.getDepth(Side.SELL, 1)).containsExactly(new DepthLevel(15810, 30, 1));
+
+        orderBook.removeByOrderId(Side.SELL, 11);
+        orderBook.removeByOrderId(Side.SELL, 9);
+        assertThat(orderBook.getDepth(Side.SELL, 5)).containsExactly(new DepthLevel(15820, 65, 1));
+    }
+
+    @Test
+    void order_removed_from_the_front_is_no_longer_found_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.findByOrderId(Side.SELL, 6)).isNull();
+        assertThat(orderBook.findByOrderId(Side.SELL, 7)).isEqualTo(orders.get(6));
+    }
+
+    @Test
+    void resting_sell_orders_commit_their_quantity() {
+        assertThat(shareholder.getCommittedSellQuantity(security)).isEqualTo(350 + 285 + 800 + 340 + 65);
+    }
+
+    @Test
+    void committed_quantity_follows_fills_and_removals() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.decreaseFirst(Side.SELL, 100);
+        orderBook.removeByOrderId(Side.SELL, 8);
+        orderBook.removeFirst(Side.BUY);
+        assertThat(shareholder.getCommittedSellQuantity(security)).isEqualTo(250 + 285 + 340 + 65);
+    }
+
+    @Test
+    void iceberg_orders_commit_their_total_quantity() {
+        OrderBook orderBook = security.getOrderBook();
+        IcebergOrder iceberg = new IcebergOrder(11, security, Side.SELL, 500, 15900, Broker.builder().build(), shareholder, 100);
+        orderBook.enqueue(iceberg);
+        int committedBefore = shareholder.getCommittedSellQuantity(security);
+        iceberg.decreaseQuantity(100);
+        orderBook.updateQuantity(iceberg);
+        assertThat(shareholder.getCommittedSellQuantity(security)).isEqualTo(committedBefore - 100);
+        orderBook.removeByOrderId(Side.SELL, 11);
+        assertThat(shareholder.getCommittedSellQuantity(security)).isEqualTo(committedBefore - 500);
+    }
+
+    @Test
+    void shareholder_can_only_sell_what_is_not_already_committed() {
+        assertThat(shareholder.canSell(security, 100_000 - 1840)).isTrue();
+        assertThat(shareholder.canSell(security, 100_000 - 1840 + 1)).isFalse();
+    }
+}
@@ -0,0 +1,89 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderPoolTest {
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private OrderPool orderPool;
+
+    @BeforeEach
+    void setup() {
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).credit(100_000_000L).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 100_000);
+        orderPool = security.getOrderPool();
+    }
+
+    private Order acquire(long orderId, int quantity) {
+        return orderPool.acquire(orderId, security, Side.BUY, quantity, 15700, broker, shareholder,
+                LocalDateTime.now(), OrderStatus.NEW, 0);
+    }
+
+    @Test
+    void released_order_is_handed_out_again_by_the_next_acquire() {
+        Order first = acquire(1, 100);
+        orderPool.release(first);
+        Order second = acquire(2, 200);
+        Order third = acquire(3, 300);
+
+        assertThat(second).isSameAs(first);
+        assertThat(third).isNotSameAs(first);
+        assertThat(second.getOrderId()).isEqualTo(2);
+        assertThat(second.getQuantity()).isEqualTo(200);
+        assertThat(second.getStatus()).isEqualTo(OrderStatus.NEW);
+    }
+
+    @Test
+    void retired_order_is_still_usable_until_the_next_acquire() {
+        Order order = acquire(1, 100);
+        orderPool.release(order);
+        order.decreaseQuantity(40);
+        assertThat(order.getQuantity()).isEqualTo(60);
+    }
+
+    @Test
+    void recycled_order_refuses_use() {
+        Order order = acquire(1, 100);
+        Order other = acquire(2, 200);
+        orderPool.release(order);
+        orderPool.release(other);
+        assertThat(acquire(3, 300)).isSameAs(other);
+        assertThatThrownBy(() -> order.decreaseQuantity(10)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void order_cannot_be_released_twice() {
+        Order order = acquire(1, 100);
+        orderPool.release(order);
+        assertThatThrownBy(() -> orderPool.release(order)).isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void fully_filled_orders_are_reused_for_later_orders() {
+        Matcher matcher = new Matcher();
+        security.newOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.SELL, 100, 15700, 1, 1, 0), broker, shareholder, matcher);
+        Order resting = security.getOrderBook().findByOrderId(Side.SELL, 1);
+        Order incoming = security.newOrder(EnterOrderRq.createNewOrderRq(2, "ABC", 2, LocalDateTime.now(), Side.BUY, 100, 15700, 1, 1, 0), broker, shareholder, matcher).remainder();
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 1)).isNull();
+
+        security.newOrder(EnterOrderRq.createNewOrderRq(3, "ABC", 3, LocalDateTime.now(), Side.SELL, 50, 15800, 1, 1, 0), broker, shareholder, matcher);
+        security.newOrder(EnterOrderRq.createNewOrderRq(4, "ABC", 4, LocalDateTime.now(), Side.SELL, 60, 15900, 1, 1, 0), broker, shareholder, matcher);
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 3)).isSameAs(incoming);
+        Order later = security.getOrderBook().findByOrderId(Side.SELL, 4);
+        assertThat(later).isSameAs(resting);
+        assertThat(later.getQuantity()).isEqualTo(60);
+        assertThat(later.getStatus()).isEqualTo(OrderStatus.QUEUED);
+    }
+}
@@ -0,0 +1,80 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordOrderBookTest extends OrderBookTest {
+    @Override
+    OrderBook newOrderBook() {
+        return new OrderBook(true);
+    }
+
+    @Test
+    void found_orders_are_copies_of_their_records() {
+        Security security = Security.builder().orderBook(newOrderBook()).build();
+        Broker broker = Broker.builder().build();
+        Shareholder shareholder = Shareholder.builder().build();
+        LocalDateTime entryTime = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+        IcebergOrder iceberg = new IcebergOrder(1, security, Side.BUY, 500, 15700, broker, shareholder, entryTime, 100, 20);
+        security.getOrderBook().enqueue(iceberg);
+
+        Order found = security.getOrderBook().findByOrderId(Side.BUY, 1);
+        assertThat(found).isNotSameAs(iceberg).isEqualTo(iceberg);
+        assertThat(found.getBroker()).isSameAs(broker);
+        assertThat(found.getShareholder()).isSameAs(shareholder);
+        assertThat(found.getMinimumExecutionQuantity()).isEqualTo(20);
+    }
+
+    @Test
+    void changes_to_a_found_order_reach_the_book_through_update_quantity() {
+        Security security = Security.builder().orderBook(newOrderBook()).build();
+        Broker broker = Broker.builder().build();
+        Shareholder shareholder = Shareholder.builder().build();
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.enqueue(new Order(1, security, Side.SELL, 300, 15800, broker, shareholder));
+        orderBook.enqueue(new Order(2, security, Side.SELL, 200, 15800, broker, shareholder));
+
+        Order found = orderBook.findByOrderId(Side.SELL, 2);
+        found.decreaseQuantity(50);
+        assertThat(orderBook.getDepth(Side.SELL, 1)).containsExactly(new DepthLevel(15800, 500, 2));
+        orderBook.updateQuantity(found);
+        assertThat(orderBook.getDepth(Side.SELL, 1)).containsExactly(new DepthLevel(15800, 450, 2));
+        assertThat(orderBook.findByOrderId(Side.SELL, 2).getQuantity()).isEqualTo(150);
+        assertThat(shareholder.getCommittedSellQuantity(security)).isEqualTo(450);
+    }
+
+    @Test
+    void trades_keep_their_orders_after_the_orders_are_filled_or_deleted() {
+        Security security = Security.builder().isin("ABC").orderBook(newOrderBook()).build();
+        Broker broker = Broker.builder().brokerId(1).credit(100_000_000L).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 100_000);
+        Matcher matcher = new Matcher();
+        LocalDateTime entryTime = LocalDateTime.of(2024, 3, 1, 9, 30);
+        for (int i = 1; i <= 5; i++)
+            security.newOrder(EnterOrderRq.createNewOrderRq(i, "ABC", i, entryTime, Side.SELL, 100, 15700 + i, 1, 1, 0), broker, shareholder, matcher);
+
+        MatchResult result = security.newOrder(EnterOrderRq.createNewOrderRq(6, "ABC", 6, entryTime, Side.BUY, 350, 15800, 1, 1, 0), broker, shareholder, matcher);
+        security.deleteOrder(new DeleteOrderRq(7, "ABC", Side.SELL, 4));
+        security.deleteOrder(new DeleteOrderRq(8, "ABC", Side.SELL, 5));
+        assertThat(result.trades()).extracting(trade -> trade.getSell().getOrderId()).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(result.trades()).extracting(trade -> trade.getSell().getQuantity()).containsExactly(100, 100, 100, 100);
+
+        TradeBuffer trades = result.tradeBuffer();
+        for (int i = 0; i < 5; i++) {
+            Order acquired = security.getOrderPool().acquire(100 + i, security, Side.SELL, 1, 1, broker, shareholder, entryTime, OrderStatus.NEW, 0);
+            for (int trade = 0; trade < trades.size(); trade++)
+                assertThat(acquired).isNotSameAs(trades.getSell(trade));
+        }
+        assertThat(trades.getSellOrderId(0)).isEqualTo(1);
+        assertThat(trades.getSellOrderId(3)).isEqualTo(4);
+        assertThat(trades.getQuantity(3)).isEqualTo(50);
+    }
+}
@@ -181,4 +181,32 @@ public class StopLimitOrderTest {
         orderHandler.handleEnterOrder(StopLimitOrderRq1);
         verify(eventPublisher).publish(new OrderRejectedEvent(StopLimitOrderRq1.getRequestId(), StopLimitOrderRq1.getOrderId(), List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void updating_stop_limit_order_beyond_the_broker_credit_is_rejected_and_leaves_the_order_unchanged() {
+        EnterOrderRq newStopLimitOrderRq = EnterOrderRq.createNewOrderRq(1, security.getIsin(), 13, LocalDateTime.now(), Side.BUY, 300, 15400, 1, 1, 0, 0, 16000);
+        orderHandler.handleEnterOrder(newStopLimitOrderRq);
+        long buyer_broker_credit = buyer_broker.getCredit();
+        EnterOrderRq updateStopLimitOrderRq = EnterOrderRq.createUpdateOrderRq(2, security.getIsin(), 13, LocalDateTime.now(), Side.BUY, 10_000, 15400, 1, 1, 0, 0, 15900);
+        orderHandler.handleEnterOrder(updateStopLimitOrderRq);
+        verify(eventPublisher).publish(new OrderRejectedEvent(2, 13, List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT)));
+        assertThat(buyer_broker.getCredit()).isEqualTo(buyer_broker_credit);
+        EnterOrderRq stopLimitOrder = security.getStopOrderBook().findByOrderId(Side.BUY, 13);
+        assertThat(stopLimitOrder.getQuantity()).isEqualTo(300);
+        assertThat(stopLimitOrder.getStopPrice()).isEqualTo(16000);
+    }
+
+    @Test
+    void credit_of_a_stop_limit_order_worth_more_than_an_int_is_reserved_and_returned_in_full() {
+        Broker rich_broker = Broker.builder().credit(10_000_000_000L).brokerId(3).build();
+        brokerRepository.addBroker(rich_broker);
+        EnterOrderRq newStopLimitOrderRq = EnterOrderRq.createNewOrderRq(1, security.getIsin(), 13, LocalDateTime.now(), Side.BUY, 100_000, 50_000, 3, 1, 0, 0, 60_000);
+        orderHandler.handleEnterOrder(newStopLimitOrderRq);
+        assertThat(rich_broker.getCredit()).isEqualTo(5_000_000_000L);
+        EnterOrderRq updateStopLimitOrderRq = EnterOrderRq.createUpdateOrderRq(2, security.getIsin(), 13, LocalDateTime.now(), Side.BUY, 150_000, 50_000, 3, 1, 0, 0, 60_000);
+        orderHandler.handleEnterOrder(updateStopLimitOrderRq);
+        assertThat(rich_broker.getCredit()).isEqualTo(2_500_000_000L);
+        orderHandler.handleDeleteOrder(new DeleteOrderRq(3, security.getIsin(), Side.BUY, 13, LocalDateTime.now()));
+        assertThat(rich_broker.getCredit()).isEqualTo(10_000_000_000L);
+    }
+}
@@ -0,0 +1,107 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.entity.StopOrderBook;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StopOrderBookTest {
+    private StopOrderBook stopOrderBook;
+
+    @BeforeEach
+    void setup() {
+        stopOrderBook = new StopOrderBook();
+        stopOrderBook.add(stopOrder(1, Side.BUY, 15700));
+        stopOrderBook.add(stopOrder(2, Side.BUY, 15500));
+        stopOrderBook.add(stopOrder(3, Side.BUY, 15900));
+        stopOrderBook.add(stopOrder(4, Side.BUY, 15500));
+        stopOrderBook.add(stopOrder(5, Side.SELL, 15000));
+        stopOrderBook.add(stopOrder(6, Side.SELL, 15200));
+    }
+
+    private EnterOrderRq stopOrder(long orderId, Side side, int stopPrice) {
+        return EnterOrderRq.createNewOrderRq(orderId, "ABC", orderId, LocalDateTime.now(), side, 100, 15600, 1, 1, 0, 0, stopPrice);
+    }
+
+    @Test
+    void only_buy_stops_at_or_below_last_traded_price_are_activated_in_stop_price_order() {
+        assertThat(stopOrderBook.popActivated(Side.BUY, 15700)).extracting(EnterOrderRq::getOrderId)
+                .containsExactly(2L, 4L, 1L);
+        assertThat(stopOrderBook.hasOrder(Side.BUY, 1)).isFalse();
+        assertThat(stopOrderBook.hasOrder(Side.BUY, 3)).isTrue();
+    }
+
+    @Test
+    void only_sell_stops_at_or_above_last_traded_price_are_activated_in_stop_price_order() {
+        assertThat(stopOrderBook.popActivated(Side.SELL, 14900)).extracting(EnterOrderRq::getOrderId)
+                .containsExactly(6L, 5L);
+        assertThat(stopOrderBook.popActivated(Side.SELL, 14900)).isEmpty();
+    }
+
+    @Test
+    void sell_stops_with_the_same_stop_price_are_activated_newest_first() {
+        stopOrderBook.add(stopOrder(7, Side.SELL, 15200));
+        stopOrderBook.add(stopOrder(8, Side.SELL, 15200));
+        assertThat(stopOrderBook.popActivated(Side.SELL, 14900)).extracting(EnterOrderRq::getOrderId)
+                .containsExactly(8L, 7L, 6L, 5L);
+    }
+
+    @Test
+    void updated_stop_order_keeps_its_arrival_among_stops_with_its_new_stop_price() {
+        stopOrderBook.add(stopOrder(7, Side.BUY, 15700));
+        EnterOrderRq previous = stopOrderBook.update(Side.BUY, 2, 15800, 200, 15700);
+        assertThat(previous.getStopPrice()).isEqualTo(15500);
+        assertThat(previous.getQuantity()).isEqualTo(100);
+        stopOrderBook.update(Side.BUY, 1, 15600, 50, 15700);
+
+        assertThat(stopOrderBook.popActivated(Side.BUY, 15700)).extracting(EnterOrderRq::getOrderId)
+                .containsExactly(4L, 1L, 2L, 7L);
+        assertThat(stopOrderBook.update(Side.BUY, 2, 15800, 200, 15700)).isNull();
+    }
+
+    @Test
+    void updated_stop_order_is_activated_with_its_new_values() {
+        stopOrderBook.update(Side.SELL, 6, 15400, 300, 14800);
+        assertThat(stopOrderBook.popActivated(Side.SELL, 14900)).extracting(EnterOrderRq::getOrderId)
+                .containsExactly(5L);
+        assertThat(stopOrderBook.popActivated(Side.SELL, 14800)).singleElement()
+                .satisfies(activated -> {
+                    assertThat(activated.getPrice()).isEqualTo(15400);
+                    assertThat(activated.getQuantity()).isEqualTo(300);
+                    assertThat(activated.getStopPrice()).isEqualTo(14800);
+                });
+    }
+
+    @Test
+    void removed_stop_order_is_not_activated() {
+        assertThat(stopOrderBook.removeByOrderId(Side.BUY, 2).getOrderId()).isEqualTo(2);
+        assertThat(stopOrderBook.removeByOrderId(Side.SELL, 2)).isNull();
+        assertThat(stopOrderBook.popActivated(Side.BUY, 15500)).extracting(EnterOrderRq::getOrderId)
+                .containsExactly(4L);
+    }
+
+    @Test
+    void stop_order_removed_from_the_middle_of_its_level_keeps_the_others_in_order() {
+        stopOrderBook.add(stopOrder(7, Side.BUY, 15500));
+        stopOrderBook.removeByOrderId(Side.BUY, 4);
+        assertThat(stopOrderBook.popActivated(Side.BUY, 15500)).extracting(EnterOrderRq::getOrderId)
+                .containsExactly(2L, 7L);
+    }
+
+    @Test
+    void off_heap_book_gives_back_the_stop_orders_it_was_given() {
+        StopOrderBook offHeapBook = new StopOrderBook(true);
+        EnterOrderRq stopOrder = stopOrder(1, Side.SELL, 15000);
+        offHeapBook.add(stopOrder);
+        for (long orderId = 2; orderId < 3000; orderId++)
+            offHeapBook.add(stopOrder(orderId, Side.SELL, 14000));
+        assertThat(offHeapBook.removeByOrderId(Side.SELL, 1)).isEqualTo(stopOrder);
+        assertThat(offHeapBook.popActivated(Side.SELL, 14000)).hasSize(2998);
+        assertThat(offHeapBook.isEmpty()).isTrue();
+    }
+}
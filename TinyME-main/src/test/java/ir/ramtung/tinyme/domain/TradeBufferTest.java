@@ -0,0 +1,98 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TradeBufferTest {
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private OrderPool orderPool;
+    private TradeBuffer trades;
+
+    @BeforeEach
+    void setup() {
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        orderPool = security.getOrderPool();
+        trades = new TradeBuffer();
+    }
+
+    private Order acquire(long orderId, Side side, int quantity) {
+        return orderPool.acquire(orderId, security, side, quantity, 15700, broker, shareholder,
+                LocalDateTime.of(2024, 3, 1, 9, 30), OrderStatus.QUEUED, 0);
+    }
+
+    @Test
+    void each_trade_keeps_the_quantities_of_its_orders_at_fill_time() {
+        Order buy = acquire(1, Side.BUY, 300);
+        Order sell1 = acquire(2, Side.SELL, 100);
+        Order sell2 = acquire(3, Side.SELL, 250);
+        trades.add(15700, 100, buy, sell1);
+        buy.decreaseQuantity(100);
+        sell1.decreaseQuantity(100);
+        trades.add(15700, 200, sell2, buy);
+        buy.decreaseQuantity(200);
+        sell2.decreaseQuantity(200);
+
+        assertThat(trades.toTrades(trades.getGeneration())).extracting(Trade::getQuantity).containsExactly(100, 200);
+        assertThat(trades.toTrade(0).getBuy().getQuantity()).isEqualTo(300);
+        assertThat(trades.toTrade(0).getSell().getQuantity()).isEqualTo(100);
+        assertThat(trades.toTrade(1).getBuy().getQuantity()).isEqualTo(200);
+        assertThat(trades.toTrade(1).getSell()).isEqualTo(new Order(3, security, Side.SELL, 250, 15700, broker, shareholder,
+                LocalDateTime.of(2024, 3, 1, 9, 30), OrderStatus.SNAPSHOT));
+    }
+
+    @Test
+    void trades_of_an_earlier_match_are_refused_once_the_buffer_is_reused() {
+        int generation = trades.getGeneration();
+        trades.add(15700, 100, acquire(1, Side.BUY, 100), acquire(2, Side.SELL, 100));
+        MatchResult result = MatchResult.executed(null, trades);
+        assertThat(result.trades()).hasSize(1);
+
+        trades.clear();
+        trades.add(15800, 50, acquire(3, Side.BUY, 50), acquire(4, Side.SELL, 50));
+        assertThatThrownBy(() -> trades.toTrades(generation)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(result::tradeBuffer).isInstanceOf(IllegalStateException.class);
+        assertThat(trades.toTrades(trades.getGeneration())).extracting(Trade::getPrice).containsExactly(15800);
+    }
+
+    @Test
+    void snapshot_of_a_retired_order_is_built_from_its_fill() {
+        Order buy = acquire(1, Side.BUY, 100);
+        Order sell = acquire(2, Side.SELL, 100);
+        trades.add(15700, 100, buy, sell);
+        buy.makeQuantityZero();
+        sell.makeQuantityZero();
+        orderPool.release(buy);
+        orderPool.release(sell);
+
+        Trade trade = trades.toTrade(0);
+        assertThat(trade.getBuy().getOrderId()).isEqualTo(1);
+        assertThat(trade.getBuy().getQuantity()).isEqualTo(100);
+        assertThat(trade.getSell().getOrderId()).isEqualTo(2);
+        assertThat(trade.getSell().getQuantity()).isEqualTo(100);
+    }
+
+    @Test
+    void snapshot_of_a_recycled_order_is_refused() {
+        Order buy = acquire(1, Side.BUY, 100);
+        Order sell = acquire(2, Side.SELL, 100);
+        trades.add(15700, 100, buy, sell);
+        orderPool.release(sell);
+        Order recycled = acquire(5, Side.SELL, 40);
+
+        assertThat(recycled).isSameAs(sell);
+        assertThat(trades.getSellOrderId(0)).isEqualTo(2);
+        assertThat(trades.getBuyOrderId(0)).isEqualTo(1);
+        assertThatThrownBy(() -> trades.toTrade(0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> trades.sellSnapshot(0)).isInstanceOf(IllegalStateException.class);
+    }
+}
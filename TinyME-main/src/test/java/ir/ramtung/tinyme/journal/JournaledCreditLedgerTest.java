@@ -0,0 +1,69 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournaledCreditLedgerTest {
+    private final JournaledCreditLedger creditLedger = new JournaledCreditLedger();
+
+    @AfterEach
+    void tearDown() {
+        creditLedger.use(null);
+    }
+
+    private CreditDecisions recorded() {
+        Broker broker = Broker.builder().credit(100).build();
+        CreditDecisions live = new CreditDecisions();
+        live.recordFor(8);
+        creditLedger.use(live);
+        assertThat(creditLedger.reserveCredit(broker, 60)).isTrue();
+        assertThat(creditLedger.reserveCredit(broker, 60)).isFalse();
+        assertThat(creditLedger.hasEnoughCredit(broker, 40)).isTrue();
+        creditLedger.use(null);
+        return live;
+    }
+
+    @Test
+    void checks_go_straight_to_the_broker_without_decisions() {
+        Broker broker = Broker.builder().credit(100).build();
+        assertThat(creditLedger.reserveCredit(broker, 60)).isTrue();
+        assertThat(creditLedger.reserveCredit(broker, 60)).isFalse();
+        assertThat(creditLedger.hasEnoughCredit(broker, 40)).isTrue();
+        assertThat(broker.getCredit()).isEqualTo(40);
+    }
+
+    @Test
+    void checks_of_a_request_are_recorded_in_order() {
+        CreditDecisions live = recorded();
+        assertThat(live.getCount()).isEqualTo(3);
+        assertThat(live.outcome(0)).isTrue();
+        assertThat(live.outcome(1)).isFalse();
+        assertThat(live.outcome(2)).isTrue();
+    }
+
+    @Test
+    void replayed_decisions_are_followed_when_the_credit_covers_them() {
+        CreditDecisions live = recorded();
+        Broker broker = Broker.builder().credit(100).build();
+        creditLedger.use(new CreditDecisions(8, live.getCount(), live.getOutcomes()));
+        assertThat(creditLedger.reserveCredit(broker, 60)).isTrue();
+        assertThat(creditLedger.reserveCredit(broker, 10)).isFalse();
+        assertThat(creditLedger.hasEnoughCredit(broker, 1000)).isTrue();
+        assertThat(broker.getCredit()).isEqualTo(40);
+    }
+
+    @Test
+    void replayed_reservation_the_credit_cannot_cover_is_turned_down() {
+        CreditDecisions live = recorded();
+        Broker broker = Broker.builder().credit(50).build();
+        creditLedger.use(new CreditDecisions(8, live.getCount(), live.getOutcomes()));
+        assertThat(creditLedger.reserveCredit(broker, 60)).isFalse();
+        assertThat(creditLedger.reserveCredit(broker, 10)).isFalse();
+        assertThat(creditLedger.hasEnoughCredit(broker, 1000)).isTrue();
+        assertThat(creditLedger.reserveCredit(broker, 100)).isFalse();
+        assertThat(broker.getCredit()).isEqualTo(50);
+    }
+}
@@ -0,0 +1,142 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestJournalTest {
+    @TempDir
+    Path directory;
+
+    private RequestJournal journalOf(int windowSize) {
+        return new RequestJournal(directory.resolve("requests.journal").toString(), windowSize, 100);
+    }
+
+    private EnterOrderRq enterOrderRq(long requestId) {
+        return EnterOrderRq.createNewOrderRq(requestId, "ABC", requestId, LocalDateTime.of(2024, 1, 1, 9, 0), Side.BUY, 10, 100, 1, 1, 0);
+    }
+
+    private List<Object> replayed(RequestJournal journal) throws IOException {
+        List<Object> requests = new ArrayList<>();
+        journal.replay(requests::add);
+        return requests;
+    }
+
+    @Test
+    void appended_requests_are_replayed_in_order_after_restart() throws IOException {
+        List<Object> requests = List.of(enterOrderRq(1), new DeleteOrderRq(2, "ABC", Side.BUY, 1), new ChangeMatchingStateRq("ABC", MatchingState.AUCTION));
+        RequestJournal journal = journalOf(1 << 16);
+        journal.start();
+        requests.forEach(journal::append);
+        journal.stop();
+
+        assertThat(replayed(journalOf(1 << 16))).isEqualTo(requests);
+    }
+
+    @Test
+    void records_roll_over_to_the_next_window() throws IOException {
+        RequestJournal journal = journalOf(256);
+        journal.start();
+        for (int i = 0; i < 100; i++)
+            journal.append(enterOrderRq(i));
+        journal.stop();
+
+        List<Object> requests = replayed(journalOf(256));
+        assertThat(requests).hasSize(100);
+        assertThat(requests.get(99)).isEqualTo(enterOrderRq(99));
+    }
+
+    @Test
+    void a_torn_record_ends_the_replay_and_is_overwritten() throws IOException {
+        RequestJournal journal = journalOf(1 << 16);
+        journal.start();
+        journal.append(enterOrderRq(1));
+        journal.append(enterOrderRq(2));
+        journal.stop();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("requests.journal").toFile(), "rw")) {
+            file.seek(8);
+            int firstLength = Integer.reverseBytes(file.readInt());
+            file.seek(8 + 8 + firstLength + 8 + 2);
+            file.writeByte(0x7f);
+        }
+
+        RequestJournal restarted = journalOf(1 << 16);
+        assertThat(replayed(restarted)).containsExactly(enterOrderRq(1));
+        restarted.start();
+        restarted.append(enterOrderRq(3));
+        restarted.stop();
+
+        assertThat(replayed(journalOf(1 << 16))).containsExactly(enterOrderRq(1), enterOrderRq(3));
+    }
+
+    @Test
+    void replay_resumes_from_a_position_of_the_same_journal() throws IOException {
+        RequestJournal journal = journalOf(256);
+        journal.start();
+        for (int i = 0; i < 10; i++)
+            journal.append(enterOrderRq(i));
+        JournalPosition position = journal.position();
+        for (int i = 10; i < 20; i++)
+            journal.append(enterOrderRq(i));
+        journal.stop();
+
+        List<Object> requests = new ArrayList<>();
+        journalOf(256).replay(position, requests::add);
+        assertThat(requests).hasSize(10).first().isEqualTo(enterOrderRq(10));
+
+        List<Object> fromOtherJournal = new ArrayList<>();
+        journalOf(256).replay(new JournalPosition(position.journalId() + 1, position.offset()), fromOtherJournal::add);
+        assertThat(fromOtherJournal).hasSize(20);
+    }
+
+    @Test
+    void credit_decisions_are_replayed_with_the_position_of_their_request() throws IOException {
+        RequestJournal journal = journalOf(256);
+        journal.start();
+        journal.append(enterOrderRq(1));
+        long position = journal.append(enterOrderRq(2));
+        journal.append(new CreditDecisions(position, 70, new long[]{0x5555_5555_5555_5555L, 0x15L}));
+        journal.stop();
+
+        List<Long> positions = new ArrayList<>();
+        List<Object> records = new ArrayList<>();
+        journalOf(256).replayWithPositions(JournalPosition.START, (record, recordPosition) -> {
+            records.add(record);
+            positions.add(recordPosition);
+        });
+        assertThat(records).hasSize(3);
+        assertThat(records.get(1)).isEqualTo(enterOrderRq(2));
+        assertThat(positions.get(1)).isEqualTo(position);
+        CreditDecisions replayed = (CreditDecisions) records.get(2);
+        assertThat(replayed.getRequestPosition()).isEqualTo(position);
+        assertThat(replayed.getCount()).isEqualTo(70);
+        assertThat(replayed.outcome(0)).isTrue();
+        assertThat(replayed.outcome(1)).isFalse();
+        assertThat(replayed.outcome(68)).isTrue();
+        assertThat(replayed.outcome(69)).isFalse();
+    }
+
+    @Test
+    void reset_discards_the_journal() throws IOException {
+        RequestJournal journal = journalOf(1 << 16);
+        journal.start();
+        journal.append(enterOrderRq(1));
+        journal.stop();
+        journal.reset();
+
+        assertThat(replayed(journalOf(1 << 16))).isEmpty();
+    }
+}
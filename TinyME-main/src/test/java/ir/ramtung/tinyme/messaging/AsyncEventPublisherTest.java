@@ -0,0 +1,126 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.springframework.jms.UncategorizedJmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.destination.DestinationResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AsyncEventPublisherTest {
+    private JmsTemplate jmsTemplate;
+    private Session session;
+    private MessageProducer producer;
+    private List<Event> sent;
+
+    @BeforeEach
+    void setup() throws JMSException {
+        jmsTemplate = mock(JmsTemplate.class);
+        session = mock(Session.class);
+        producer = mock(MessageProducer.class);
+        sent = new ArrayList<>();
+        DestinationResolver destinationResolver = mock(DestinationResolver.class);
+        MessageConverter messageConverter = mock(MessageConverter.class);
+        when(jmsTemplate.getDestinationResolver()).thenReturn(destinationResolver);
+        when(jmsTemplate.getMessageConverter()).thenReturn(messageConverter);
+        when(session.createProducer(any())).thenReturn(producer);
+        when(session.getTransacted()).thenReturn(true);
+        when(messageConverter.toMessage(any(), eq(session))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return mock(Message.class);
+        });
+        when(jmsTemplate.execute(ArgumentMatchers.<SessionCallback<Object>>any(), eq(true))).thenAnswer(invocation ->
+                invocation.<SessionCallback<?>>getArgument(0).doInJms(session));
+    }
+
+    private EventPublisher publisher(boolean async, int batchSize) {
+        EventPublisher eventPublisher = new EventPublisher(jmsTemplate, async, 16, batchSize, 0);
+        ReflectionTestUtils.setField(eventPublisher, "responseQueue", "RS");
+        return eventPublisher;
+    }
+
+    private List<Event> events(int count) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            events.add(new OrderAcceptedEvent(i, i));
+        return events;
+    }
+
+    @Test
+    void queued_events_are_sent_in_order_in_committed_batches() throws JMSException {
+        EventPublisher eventPublisher = publisher(true, 3);
+        List<Event> events = events(7);
+        events.forEach(eventPublisher::publish);
+        eventPublisher.start();
+        eventPublisher.stop();
+
+        assertThat(sent).isEqualTo(events);
+        verify(jmsTemplate, times(3)).execute(ArgumentMatchers.<SessionCallback<Object>>any(), eq(true));
+        verify(session, times(3)).commit();
+        verify(producer, times(7)).send(any(Message.class));
+    }
+
+    @Test
+    void a_batch_that_fails_to_send_is_sent_again() throws JMSException {
+        when(jmsTemplate.execute(ArgumentMatchers.<SessionCallback<Object>>any(), eq(true)))
+                .thenThrow(new UncategorizedJmsException("Broker unavailable"))
+                .thenAnswer(invocation -> invocation.<SessionCallback<?>>getArgument(0).doInJms(session));
+        EventPublisher eventPublisher = publisher(true, 3);
+        List<Event> events = events(5);
+        events.forEach(eventPublisher::publish);
+        eventPublisher.start();
+        eventPublisher.stop();
+
+        assertThat(sent).isEqualTo(events);
+        verify(session, times(2)).commit();
+    }
+
+        @Test
+    void pending_events_are_flushed_on_shutdown() throws JMSException {
+        EventPublisher eventPublisher = new EventPublisher(jmsTemplate, true, 16, 64, 60_000_000);
+        ReflectionTestUtils.setField(eventPublisher, "responseQueue", "RS");
+        eventPublisher.start();
+        List<Event> events = events(5);
+        events.forEach(eventPublisher::publish);
+        eventPublisher.stop();
+
+        assertThat(sent).isEqualTo(events);
+        InOrder inOrder = inOrder(producer, session);
+        inOrder.verify(producer, times(5)).send(any(Message.class));
+        inOrder.verify(session).commit();
+    }
+
+    @Test
+    void publishing_into_a_full_ring_fails_when_the_sender_is_not_running() {
+        EventPublisher eventPublisher = publisher(true, 3);
+        events(16).forEach(eventPublisher::publish);
+        assertThatThrownBy(() -> eventPublisher.publish(new OrderAcceptedEvent(16, 16)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void synchronous_mode_sends_on_the_calling_thread() {
+        EventPublisher eventPublisher = publisher(false, 1);
+        Event event = new OrderAcceptedEvent(1, 1);
+        eventPublisher.publish(event);
+        verify(jmsTemplate).convertAndSend("RS", event);
+    }
+}
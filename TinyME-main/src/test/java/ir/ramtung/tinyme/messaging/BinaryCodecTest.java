@@ -0,0 +1,108 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BinaryCodecTest {
+    private final BinaryCodec codec = new BinaryCodec();
+
+    private Object roundTrip(Object message) {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        codec.encode(message, buffer);
+        buffer.flip();
+        Object decoded = codec.decode(buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return decoded;
+    }
+
+    @Test
+    void requests_survive_a_round_trip() {
+        LocalDateTime entryTime = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+        List<Object> requests = List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 200, entryTime, Side.BUY, 300, 15450, 2, 3, 50, 20, 15000),
+                EnterOrderRq.createUpdateOrderRq(4, "ABC", 200, entryTime, Side.SELL, 100, 15400, 2, 3, 0),
+                new DeleteOrderRq(5, "ABC", Side.SELL, 200),
+                new ChangeMatchingStateRq("ABC", MatchingState.AUCTION)
+        );
+        for (Object request : requests)
+            assertThat(roundTrip(request)).isEqualTo(request);
+    }
+
+    @Test
+    void events_survive_a_round_trip_including_their_time() {
+        List<Event> events = List.of(
+                new OrderAcceptedEvent(1, 200),
+                new OrderActivatedEvent(1, 200),
+                new OrderDeletedEvent(1, 200),
+                new OrderUpdatedEvent(1, 200),
+                new OrderRejectedEvent(1, 200, List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT, Message.INVALID_ORDER_ID)),
+                new OrderExecutedEvent(1, 200, List.of(new TradeDTO("ABC", 15450, 100, 200, 7), new TradeDTO("ABC", 15500, 20, 200, 9))),
+                new OrderExecutedEvent(1, 200, List.of()),
+                new OpeningPriceEvent("ABC", 15450, 1200),
+                new TradeEvent("ABC", 15450, 100, 200, 7),
+                new SecurityStateChangedEvent("ABC", MatchingState.CONTINUOUS)
+        );
+        for (Event event : events) {
+            Event decoded = (Event) roundTrip(event);
+            assertThat(decoded).isEqualTo(event);
+            assertThat(decoded.getTime()).isEqualTo(event.getTime());
+        }
+    }
+
+    @Test
+    void missing_values_stay_missing() {
+        EnterOrderRq enterOrderRq = new EnterOrderRq();
+        assertThat(roundTrip(enterOrderRq)).isEqualTo(enterOrderRq);
+        OrderRejectedEvent rejected = new OrderRejectedEvent(1, 2, null);
+        assertThat(roundTrip(rejected)).isEqualTo(rejected);
+    }
+
+    @Test
+    void fields_appended_to_a_block_are_skipped() {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        codec.encode(new OrderAcceptedEvent(1, 200), buffer);
+        byte[] original = Arrays.copyOf(buffer.array(), buffer.position());
+
+        ByteBuffer extended = ByteBuffer.allocate(original.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+        extended.put(original);
+        extended.putInt(0xCAFE);
+        extended.putInt(4, extended.getInt(4) + 4);
+        extended.flip();
+
+        assertThat(codec.decode(extended)).isEqualTo(new OrderAcceptedEvent(1, 200));
+    }
+
+    @Test
+    void unknown_templates_and_truncated_frames_are_rejected() {
+        ByteBuffer unknown = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putShort((short) 999).putShort((short) 1).putInt(0).flip();
+        assertThatThrownBy(() -> codec.decode(unknown)).isInstanceOf(IllegalArgumentException.class);
+        ByteBuffer truncated = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN).putShort((short) 1).putShort((short) 1).putInt(66).flip();
+        assertThatThrownBy(() -> codec.decode(truncated)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.encode("not a message", ByteBuffer.allocate(64))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void enum_ordinals_out_of_range_are_rejected() {
+        for (byte ordinal : new byte[]{(byte) MatchingState.values().length, -2}) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            codec.encode(new SecurityStateChangedEvent("ABC", MatchingState.AUCTION), buffer);
+            buffer.put(20, ordinal).flip();
+            assertThatThrownBy(() -> codec.decode(buffer)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
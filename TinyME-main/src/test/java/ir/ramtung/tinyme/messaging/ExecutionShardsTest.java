@@ -0,0 +1,165 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.CreditDecisions;
+import ir.ramtung.tinyme.journal.JournaledCreditLedger;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ExecutionShardsTest {
+    private OrderHandler orderHandler;
+    private RequestJournal requestJournal;
+    private JournaledCreditLedger creditLedger;
+    private SecurityRepository securityRepository;
+    private Security security;
+    private ExecutionShards executionShards;
+
+    @BeforeEach
+    void setup() {
+        orderHandler = mock(OrderHandler.class);
+        requestJournal = mock(RequestJournal.class);
+        creditLedger = new JournaledCreditLedger();
+        securityRepository = new SecurityRepository();
+        security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        executionShards = new ExecutionShards(orderHandler, requestJournal, creditLedger, securityRepository, 4, 16);
+        executionShards.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executionShards.stop();
+    }
+
+    private EnterOrderRq enterOrderRq(long requestId) {
+        return EnterOrderRq.createNewOrderRq(requestId, "ABC", requestId, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0);
+    }
+
+    @Test
+    void requests_of_a_security_run_in_order_on_a_single_thread() {
+        List<Long> executed = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            executed.add(invocation.<EnterOrderRq>getArgument(0).getRequestId());
+            return null;
+        }).when(orderHandler).handleEnterOrder(any(), any());
+
+        for (int i = 0; i < 1000; i++)
+            executionShards.publish(RequestType.ENTER_ORDER, enterOrderRq(i));
+        executionShards.stop();
+
+        assertThat(threads).hasSize(1);
+        assertThat(executed).hasSize(1000).isSorted();
+    }
+
+    @Test
+    void requests_are_dispatched_by_type() {
+        EnterOrderRq enterOrderRq = enterOrderRq(1);
+        DeleteOrderRq deleteOrderRq = new DeleteOrderRq(2, "ABC", Side.BUY, 1);
+        executionShards.publish(RequestType.ENTER_ORDER, enterOrderRq);
+        executionShards.publish(RequestType.DELETE_ORDER, deleteOrderRq);
+        executionShards.stop();
+
+        var inOrder = inOrder(orderHandler);
+        inOrder.verify(orderHandler).handleEnterOrder(enterOrderRq, security);
+        inOrder.verify(orderHandler).handleDeleteOrder(deleteOrderRq, security);
+    }
+
+    @Test
+    void requests_are_journaled_before_they_are_handled() {
+        EnterOrderRq enterOrderRq = enterOrderRq(1);
+        executionShards.publish(RequestType.ENTER_ORDER, enterOrderRq);
+        executionShards.stop();
+
+        var inOrder = inOrder(requestJournal, orderHandler);
+        inOrder.verify(requestJournal).append(enterOrderRq);
+        inOrder.verify(orderHandler).handleEnterOrder(enterOrderRq, security);
+    }
+
+    @Test
+    void credit_decisions_of_a_request_are_journaled_after_it() {
+        Broker broker = Broker.builder().credit(100).build();
+        when(requestJournal.append(any())).thenReturn(40L);
+        doAnswer(invocation -> {
+            creditLedger.reserveCredit(broker, 60);
+            creditLedger.reserveCredit(broker, 60);
+            return null;
+        }).when(orderHandler).handleEnterOrder(any(), any());
+        executionShards.publish(RequestType.ENTER_ORDER, enterOrderRq(1));
+        executionShards.stop();
+
+        ArgumentCaptor<Object> journaled = ArgumentCaptor.forClass(Object.class);
+        verify(requestJournal, times(2)).append(journaled.capture());
+        CreditDecisions decisions = (CreditDecisions) journaled.getAllValues().get(1);
+        assertThat(decisions.getRequestPosition()).isEqualTo(40);
+        assertThat(decisions.getCount()).isEqualTo(2);
+        assertThat(decisions.outcome(0)).isTrue();
+        assertThat(decisions.outcome(1)).isFalse();
+    }
+
+    @Test
+    void quiesce_runs_after_all_earlier_requests_and_before_later_ones() throws InterruptedException {
+        AtomicInteger handled = new AtomicInteger();
+        doAnswer(invocation -> handled.incrementAndGet()).when(orderHandler).handleEnterOrder(any(), any());
+        for (int i = 0; i < 100; i++)
+            executionShards.publish(RequestType.ENTER_ORDER, EnterOrderRq.createNewOrderRq(i, "ISIN" + i, i, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0));
+
+        List<Integer> handledDuringQuiesce = new ArrayList<>();
+        executionShards.quiesce(() -> handledDuringQuiesce.add(handled.get()));
+        executionShards.publish(RequestType.ENTER_ORDER, enterOrderRq(100));
+        executionShards.stop();
+
+        assertThat(handledDuringQuiesce).containsExactly(100);
+        assertThat(handled).hasValue(101);
+    }
+
+    @Test
+    void a_failing_request_does_not_stop_its_shard() {
+        EnterOrderRq failing = enterOrderRq(1);
+        EnterOrderRq next = enterOrderRq(2);
+        doThrow(new IllegalStateException()).when(orderHandler).handleEnterOrder(failing, security);
+        executionShards.publish(RequestType.ENTER_ORDER, failing);
+        executionShards.publish(RequestType.ENTER_ORDER, next);
+        executionShards.stop();
+        verify(orderHandler).handleEnterOrder(next, security);
+    }
+
+    @Test
+    void securities_are_spread_over_shards() {
+        Set<Integer> shards = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 100; i++)
+            shards.add(executionShards.shardOf("ISIN" + i));
+        assertThat(shards).hasSize(executionShards.shardCount());
+        assertThat(executionShards.shardOf("ABC")).isEqualTo(executionShards.shardOf("ABC"));
+    }
+
+    @Test
+    void known_securities_are_sharded_by_their_id() {
+        for (int i = 0; i < 8; i++)
+            securityRepository.addSecurity(Security.builder().isin("SEC" + i).build());
+        for (int i = 0; i < 8; i++)
+            assertThat(executionShards.shardOf("SEC" + i)).isEqualTo(securityRepository.findSecurityByIsin("SEC" + i).getId() % executionShards.shardCount());
+    }
+}
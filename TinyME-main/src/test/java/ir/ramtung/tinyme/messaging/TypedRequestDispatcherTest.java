@@ -0,0 +1,66 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.JMSException;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TypedRequestDispatcherTest {
+    private MessageConverter messageConverter;
+    private ExecutionShards executionShards;
+    private RequestDispatcher requestDispatcher;
+
+    @BeforeEach
+    void setup() {
+        messageConverter = mock(MessageConverter.class);
+        executionShards = mock(ExecutionShards.class);
+        requestDispatcher = new RequestDispatcher(messageConverter, executionShards);
+    }
+
+    private TextMessage messageOfType(String typeId, Object request) throws JMSException {
+        TextMessage message = mock(TextMessage.class);
+        when(message.getStringProperty("_type")).thenReturn(typeId);
+        when(messageConverter.fromMessage(message)).thenReturn(request);
+        return message;
+    }
+
+    @Test
+    void requests_are_routed_by_their_type_header() throws JMSException {
+        EnterOrderRq enterOrderRq = EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0);
+        DeleteOrderRq deleteOrderRq = new DeleteOrderRq(2, "ABC", Side.BUY, 1);
+
+        requestDispatcher.receive(messageOfType(EnterOrderRq.class.getName(), enterOrderRq));
+        requestDispatcher.receive(messageOfType(DeleteOrderRq.class.getName(), deleteOrderRq));
+
+        var inOrder = inOrder(executionShards);
+        inOrder.verify(executionShards).publish(RequestType.ENTER_ORDER, enterOrderRq);
+        inOrder.verify(executionShards).publish(RequestType.DELETE_ORDER, deleteOrderRq);
+    }
+
+    @Test
+    void messages_of_unknown_type_are_dropped_without_decoding() throws JMSException {
+        TextMessage message = messageOfType("java.lang.String", "payload");
+
+        requestDispatcher.receive(message);
+
+        verify(messageConverter, never()).fromMessage(any());
+        verifyNoInteractions(executionShards);
+    }
+
+    @Test
+    void request_types_resolve_from_type_ids_and_instances() {
+        assertThat(RequestType.ofTypeId(EnterOrderRq.class.getName())).isEqualTo(RequestType.ENTER_ORDER);
+        assertThat(RequestType.ofTypeId(null)).isNull();
+        assertThat(RequestType.of(new DeleteOrderRq(1, "ABC", Side.SELL, 1))).isEqualTo(RequestType.DELETE_ORDER);
+    }
+}
@@ -0,0 +1,99 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataLoaderTest {
+    @TempDir
+    Path directory;
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityRepository securityRepository;
+    private DataLoader dataLoader;
+
+    private void file(String resourceField, String name, String content) throws IOException {
+        Path path = directory.resolve(name);
+        Files.writeString(path, content);
+        ReflectionTestUtils.setField(dataLoader, resourceField, new FileSystemResource(path));
+    }
+
+    @BeforeEach
+    void setup() throws IOException {
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityRepository = new SecurityRepository();
+        dataLoader = new DataLoader(brokerRepository, shareholderRepository, securityRepository,
+                new RequestJournal("", 1, 1), new SnapshotStore("", brokerRepository, shareholderRepository, securityRepository));
+        file("brokerCsvResource", "broker.csv", "brokerId,name,credit\n1,broker1,100000\n2,broker2,200000\n");
+        file("shareholderCsvResource", "shareholder.csv", "shareholderId,name\r\n1,shareholder1\r\n");
+        file("securityCsvResource", "security.csv", "isin,tickSize,lotSize\nSEC1,1,1\nSEC2,5,10\n");
+        file("positionCsvResource", "position.csv", "shareholderId,isin,positions\n1,SEC1,1000\n1,SEC2,800");
+        file("orderBookCsvResource", "orderbook.csv", """
+                orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity
+                3,SEC1,BUY,10,15500,1,1,2024-02-23T10:59:56.5,0,0
+                1,SEC1,BUY,20,15700,1,1,2024-02-23T10:59:54.970,0,0
+                2,SEC1,BUY,30,15500,2,1,2024-02-23T10:59,0,0
+                4,SEC1,SELL,40,15800,2,1,2024-02-23T11:00:00.123456789,0,0
+                5,SEC2,SELL,100,15900,1,1,2024-02-23T11:06:10.012,20,7
+                """);
+    }
+
+    @Test
+    void repositories_are_loaded() throws Exception {
+        dataLoader.loadAll();
+
+        assertThat(brokerRepository.findBrokerById(2).getCredit()).isEqualTo(200000);
+        assertThat(shareholderRepository.findShareholderById(1).getName()).isEqualTo("shareholder1");
+        Security sec2 = securityRepository.findSecurityByIsin("SEC2");
+        assertThat(sec2.getTickSize()).isEqualTo(5);
+        assertThat(sec2.getLotSize()).isEqualTo(10);
+        assertThat(shareholderRepository.findShareholderById(1).hasEnoughPositionsOn(sec2, 800)).isTrue();
+    }
+
+    @Test
+    void securities_are_numbered_from_zero_on_every_load() throws Exception {
+        dataLoader.loadAll();
+        dataLoader.loadAll();
+
+        assertThat(securityRepository.findSecurityByIsin("SEC1").getId()).isEqualTo(0);
+        assertThat(securityRepository.findSecurityByIsin("SEC2").getId()).isEqualTo(1);
+        assertThat(securityRepository.findSecurityById(1)).isSameAs(securityRepository.findSecurityByIsin("SEC2"));
+        assertThat(securityRepository.findSecurityById(2)).isNull();
+    }
+
+    @Test
+    void order_books_are_built_in_priority_order() throws Exception {
+        dataLoader.loadAll();
+
+        OrderBook orderBook = securityRepository.findSecurityByIsin("SEC1").getOrderBook();
+        assertThat(orderBook.getBuyQueue()).extracting(Order::getOrderId).containsExactly(1L, 3L, 2L);
+        assertThat(orderBook.getSellQueue()).extracting(Order::getOrderId).containsExactly(4L);
+        assertThat(orderBook.findByOrderId(Side.BUY, 3).getEntryTime()).isEqualTo(LocalDateTime.of(2024, 2, 23, 10, 59, 56, 500_000_000));
+        assertThat(orderBook.findByOrderId(Side.BUY, 2).getEntryTime()).isEqualTo(LocalDateTime.of(2024, 2, 23, 10, 59));
+        assertThat(orderBook.findByOrderId(Side.SELL, 4).getEntryTime().getNano()).isEqualTo(123456789);
+    }
+
+    @Test
+    void icebergs_keep_their_displayed_quantity_across_save_and_load() throws Exception {
+        dataLoader.loadAll();
+        dataLoader.saveAll();
+        dataLoader.loadAll();
+
+        IcebergOrder iceberg = (IcebergOrder) securityRepository.findSecurityByIsin("SEC2").getOrderBook().findByOrderId(Side.SELL, 5);
+        assertThat(iceberg.getTotalQuantity()).isEqualTo(100);
+        assertThat(iceberg.getPeakSize()).isEqualTo(20);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(7);
+    }
+}
@@ -0,0 +1,73 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.JournalPosition;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotStoreTest {
+    @TempDir
+    Path directory;
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityRepository securityRepository;
+    private SnapshotStore snapshotStore;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityRepository = new SecurityRepository();
+        snapshotStore = new SnapshotStore(directory.resolve("state.snapshot").toString(), brokerRepository, shareholderRepository, securityRepository);
+
+        Broker broker = Broker.builder().brokerId(1).name("broker").credit(1_000_000).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(2).name("shareholder").build();
+        Security security = Security.builder().isin("ABC").tickSize(5).lotSize(10).lastTradedPrice(15000).build();
+        security.setMatchingState(MatchingState.AUCTION);
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        securityRepository.addSecurity(security);
+        shareholder.incPosition(security, 500);
+
+        LocalDateTime entryTime = LocalDateTime.of(2024, 2, 23, 10, 59, 54, 970_000_000);
+        security.getOrderBook().enqueue(new Order(10, security, Side.BUY, 30, 15100, broker, shareholder, entryTime));
+        security.getOrderBook().enqueue(new Order(11, security, Side.BUY, 40, 15100, broker, shareholder, entryTime));
+        security.getOrderBook().restore(new IcebergOrder(12, security, Side.SELL, 100, 15200, broker, shareholder, entryTime, 20, 7, OrderStatus.QUEUED));
+        security.getStopOrderBook().add(EnterOrderRq.createNewOrderRq(13, "ABC", 14, entryTime, Side.BUY, 10, 15300, 1, 2, 0, 0, 15250));
+    }
+
+    @Test
+    void loading_a_snapshot_restores_repositories_and_books() throws IOException {
+        snapshotStore.write(new JournalPosition(42, 4096));
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        securityRepository.clear();
+
+        JournalPosition position = snapshotStore.load();
+
+        assertThat(position).isEqualTo(new JournalPosition(42, 4096));
+        assertThat(brokerRepository.findBrokerById(1).getCredit()).isEqualTo(1_000_000);
+        Security security = securityRepository.findSecurityByIsin("ABC");
+        assertThat(security.getTickSize()).isEqualTo(5);
+        assertThat(security.getLotSize()).isEqualTo(10);
+        assertThat(security.getMatchingState()).isEqualTo(MatchingState.AUCTION);
+        assertThat(security.getLastTradedPrice()).isEqualTo(15000);
+        assertThat(shareholderRepository.findShareholderById(2).hasEnoughPositionsOn(security, 500)).isTrue();
+        assertThat(security.getOrderBook().getBuyQueue()).extracting(Order::getOrderId).containsExactly(10L, 11L);
+        IcebergOrder iceberg = (IcebergOrder) security.getOrderBook().findByOrderId(Side.SELL, 12);
+        assertThat(iceberg.getTotalQuantity()).isEqualTo(100);
+        assertThat(iceberg.getPeakSize()).isEqualTo(20);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(7);
+        assertThat(iceberg.getEntryTime()).isEqualTo(LocalDateTime.of(2024, 2, 23, 10, 59, 54, 970_000_000));
+        assertThat(security.getStopOrderBook().findByOrderId(Side.BUY, 14).getStopPrice()).isEqualTo(15250);
+    }
+}
@@ -0,0 +1,48 @@
+package ir.ramtung.tinyme.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkedIntArrayTest {
+    @Test
+    void unwritten_indexes_read_as_zero() {
+        ChunkedIntArray array = new ChunkedIntArray();
+        assertThat(array.get(0)).isZero();
+        assertThat(array.get(1_000_000)).isZero();
+        assertThat(array.capacity()).isZero();
+    }
+
+    @Test
+    void keeps_values_across_growth() {
+        ChunkedIntArray array = new ChunkedIntArray();
+        for (int i = 0; i < 5000; i += 7)
+            array.set(i, i);
+        array.add(14, 3);
+        for (int i = 0; i < 5000; i += 7)
+            assertThat(array.get(i)).isEqualTo(i == 14 ? 17 : i);
+        assertThat(array.capacity()).isGreaterThanOrEqualTo(5000);
+    }
+
+    @Test
+    void concurrent_writers_to_different_indexes_do_not_lose_writes() throws InterruptedException {
+        ChunkedIntArray array = new ChunkedIntArray();
+        int threads = 4;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            writers.add(new Thread(() -> {
+                for (int i = offset; i < 100_000; i += threads)
+                    array.add(i, 1);
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers)
+            writer.join();
+        for (int i = 0; i < 100_000; i++)
+            assertThat(array.get(i)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,52 @@
+package ir.ramtung.tinyme.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashMapTest {
+    @Test
+    void finds_what_was_put() {
+        LongHashMap<String> map = new LongHashMap<>();
+        map.put(1, "one");
+        map.put(-7, "minus seven");
+        map.put(0, "zero");
+        assertThat(map.get(1)).isEqualTo("one");
+        assertThat(map.get(-7)).isEqualTo("minus seven");
+        assertThat(map.get(0)).isEqualTo("zero");
+        assertThat(map.get(2)).isNull();
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    void removed_keys_are_not_found_and_others_survive() {
+        LongHashMap<Long> map = new LongHashMap<>();
+        for (long key = 0; key < 1000; key++)
+            map.put(key * 16, key);
+        for (long key = 0; key < 1000; key += 2)
+            assertThat(map.remove(key * 16)).isEqualTo(key);
+        for (long key = 0; key < 1000; key++)
+            assertThat(map.get(key * 16)).isEqualTo(key % 2 == 0 ? null : key);
+        assertThat(map.size()).isEqualTo(500);
+    }
+
+    @Test
+    void behaves_like_a_hash_map_under_random_operations() {
+        LongHashMap<Integer> map = new LongHashMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextBoolean())
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+            else
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+    }
+}
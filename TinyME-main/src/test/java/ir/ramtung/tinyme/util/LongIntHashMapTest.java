@@ -0,0 +1,43 @@
+package ir.ramtung.tinyme.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+    @Test
+    void finds_what_was_put_and_reports_missing_keys() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(1, 10);
+        map.put(-7, 0);
+        assertThat(map.get(1)).isEqualTo(10);
+        assertThat(map.get(-7)).isZero();
+        assertThat(map.get(2)).isEqualTo(LongIntHashMap.MISSING);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    void agrees_with_a_hash_map_under_random_puts_and_removes() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5000);
+            if (random.nextBoolean()) {
+                int value = random.nextInt(1_000_000);
+                map.put(key, value);
+                expected.put(key, value);
+            } else {
+                assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.MISSING));
+                expected.remove(key);
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 0; key < 5000; key++)
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.MISSING));
+    }
+}
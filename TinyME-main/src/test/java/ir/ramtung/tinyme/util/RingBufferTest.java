@@ -0,0 +1,76 @@
+package ir.ramtung.tinyme.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RingBufferTest {
+    private static final class Slot {
+        long value;
+    }
+
+    @Test
+    void capacity_must_be_a_power_of_two() {
+        assertThatThrownBy(() -> new RingBuffer<>(12, Slot::new)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void slot_is_visible_only_after_publish() {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new);
+        long sequence = ring.claim();
+        assertThat(ring.isPublished(sequence)).isFalse();
+        ring.get(sequence).value = 7;
+        ring.publish(sequence);
+        assertThat(ring.isPublished(sequence)).isTrue();
+        assertThat(ring.isPublished(sequence + 4)).isFalse();
+    }
+
+    @Test
+    void try_claim_fails_on_a_full_ring_until_a_slot_is_released() {
+        RingBuffer<Slot> ring = new RingBuffer<>(2, Slot::new);
+        assertThat(ring.tryClaim()).isEqualTo(0);
+        assertThat(ring.tryClaim()).isEqualTo(1);
+        assertThat(ring.tryClaim()).isEqualTo(-1);
+        ring.release(0);
+        assertThat(ring.tryClaim()).isEqualTo(2);
+        assertThat(ring.lastClaimed()).isEqualTo(2);
+    }
+
+    @Test
+    void every_producer_is_consumed_in_its_own_order_across_wrap_arounds() throws InterruptedException {
+        RingBuffer<Slot> ring = new RingBuffer<>(8, Slot::new);
+        int producers = 4;
+        int perProducer = 10_000;
+        List<List<Long>> received = new ArrayList<>();
+        for (int i = 0; i < producers; i++)
+            received.add(new ArrayList<>());
+        RingProcessor<Slot> processor = new RingProcessor<>(ring, (slot, endOfBatch) ->
+                received.get((int) (slot.value / perProducer)).add(slot.value));
+        processor.start("ring-test");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long sequence = ring.claim();
+                    ring.get(sequence).value = base + i;
+                    ring.publish(sequence);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertThat(processor.halt(10_000)).isTrue();
+
+        assertThat(ring.isEmpty()).isTrue();
+        for (int p = 0; p < producers; p++)
+            assertThat(received.get(p)).hasSize(perProducer).isSorted();
+    }
+}